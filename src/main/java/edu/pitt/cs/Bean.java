@@ -33,4 +33,17 @@ public interface Bean {
 	public void reset();
 
 	public void advanceStep();
+
+	/**
+	 * Moves the bean down the given number of rows, making the same bounce
+	 * decisions as calling advanceStep() that many times. Beans that can skip
+	 * over many rows at once override this.
+	 * 
+	 * @param rows the number of rows to move down
+	 */
+	public default void advanceSteps(int rows) {
+		for (int i = 0; i < rows; i++) {
+			advanceStep();
+		}
+	}
 }
\ No newline at end of file
@@ -1,5 +1,7 @@
 package edu.pitt.cs;
 
+import java.util.Iterator;
+
 public interface BeanCounterLogic {
 	/**
 	 * Returns the either BeanCounterLogicImpl or BeanCounterLogicBuggy instance
@@ -21,6 +23,23 @@ public interface BeanCounterLogic {
 		return null;
 	}
 
+	/**
+	 * Creates a BeanCounterLogic that may take up to heapBudget bytes of heap per
+	 * run. With Config.getLogicType() IMPL, runs are kept as bean objects when
+	 * they fit and only as counts when they do not; see
+	 * BeanCounterLogicAdaptive. Other logic types ignore the budget.
+	 *
+	 * @param slotCount  the number of slots in the bean counter
+	 * @param heapBudget the number of bytes of heap a run may take
+	 * @return BeanCounterLogic object
+	 */
+	public static BeanCounterLogic createInstance(int slotCount, long heapBudget) {
+		if (Config.getLogicType() == LogicType.IMPL) {
+			return new BeanCounterLogicAdaptive(slotCount, heapBudget);
+		}
+		return createInstance(slotCount);
+	}
+
 	// Public interface of BeanCounterLogic
 
 	// No bean in that particular Y coordinate
@@ -31,10 +50,56 @@ public interface BeanCounterLogic {
 	
 	public int getRemainingBeanCount();
 
+	/**
+	 * Returns the number of beans remaining as a long. Engines that can hold
+	 * more than Integer.MAX_VALUE beans override this.
+	 * 
+	 * @return number of beans remaining
+	 */
+	public default long getRemainingBeanCountLong() {
+		return getRemainingBeanCount();
+	}
+
 	public int getInFlightBeanXPos(int yPos);
 
+	/**
+	 * Returns the number of in-flight beans at the provided y-coordinate. A
+	 * machine that drops one bean per step has at most one bean per row;
+	 * machines with a wider hopper override this.
+	 *
+	 * @param yPos the y-coordinate in which to count in-flight beans
+	 * @return the number of in-flight beans in that row
+	 */
+	public default int getInFlightBeanCount(int yPos) {
+		return getInFlightBeanXPos(yPos) == NO_BEAN_IN_YPOS ? 0 : 1;
+	}
+
+	/**
+	 * Returns the x-coordinate of the ith in-flight bean at the provided
+	 * y-coordinate, in the order the beans entered the machine.
+	 * getInFlightBeanXPos(yPos) is the same as getInFlightBeanXPos(yPos, 0).
+	 *
+	 * @param yPos the y-coordinate in which to look for the in-flight bean
+	 * @param i    index of the bean in the row, in [0, getInFlightBeanCount(yPos))
+	 * @return the x-coordinate of the in-flight bean
+	 */
+	public default int getInFlightBeanXPos(int yPos, int i) {
+		return getInFlightBeanXPos(yPos);
+	}
+
 	public int getSlotBeanCount(int i);
 
+	/**
+	 * Returns the number of beans in the ith slot as a long. Engines that can
+	 * hold more than Integer.MAX_VALUE beans override this.
+	 * 
+	 * @param i index of slot
+	 * @return number of beans in slot
+	 */
+	public default long getSlotBeanCountLong(int i) {
+		return getSlotBeanCount(i);
+	}
+
 	public double getAverageSlotBeanCount();
 
 	public void upperHalf();
@@ -43,7 +108,101 @@ public interface BeanCounterLogic {
 
 	public void reset(Bean[] beans);
 
+	/**
+	 * A hard reset with beans pulled from a source rather than passed in an
+	 * array. Engines that keep no per-bean state for landed beans should
+	 * override this to pull beans only as they are dropped; by default the
+	 * source is drained into an array and passed to reset(Bean[]).
+	 * 
+	 * @param beans source of the beans to add to the machine
+	 * @param count the number of beans to take from the source
+	 */
+	public default void reset(Iterator<Bean> beans, int count) {
+		Bean[] array = new Bean[count];
+		for (int i = 0; i < count; i++) {
+			array[i] = beans.next();
+		}
+		reset(array);
+	}
+
+	/**
+	 * A hard reset with more beans pulled from a source than fit in an array.
+	 * Engines that only keep counts override this to take the beans as they
+	 * are dropped; by default counts that fit in an int are passed on to
+	 * reset(Iterator, int), so engines that override that keep working.
+	 * 
+	 * @param beans source of the beans to add to the machine
+	 * @param count the number of beans to take from the source
+	 * @throws IllegalArgumentException if the engine cannot hold count beans
+	 */
+	public default void reset(Iterator<Bean> beans, long count) {
+		if (count > Integer.MAX_VALUE - 8) {
+			throw new IllegalArgumentException("Too many beans for an array: " + count);
+		}
+		reset(beans, (int) count);
+	}
+
 	public void repeat();
 
 	public boolean advanceStep();
-}
\ No newline at end of file
+
+	/**
+	 * Advances the machine up to n steps, stopping early if the machine finishes.
+	 * Implementations are encouraged to override this with a loop that does not
+	 * go through advanceStep() for every step.
+	 * 
+	 * @param n the maximum number of steps to advance
+	 * @return the number of steps that caused a status change
+	 */
+	public default long advanceSteps(long n) {
+		long taken = 0;
+		while (taken < n && advanceStep()) {
+			taken++;
+		}
+		return taken;
+	}
+
+	/**
+	 * Advances the machine until it is finished.
+	 * 
+	 * @return the number of steps that caused a status change
+	 */
+	public default long runToEnd() {
+		return advanceSteps(Long.MAX_VALUE);
+	}
+
+	/**
+	 * Returns whether the machine is finished, i.e. there are no beans in-flight
+	 * and no beans waiting. Implementations that track in-flight beans should
+	 * override this with a constant time check.
+	 * 
+	 * @return whether the machine is finished
+	 */
+	public default boolean isFinished() {
+		if (getRemainingBeanCount() > 0) {
+			return false;
+		}
+		for (int yPos = 0; yPos < getSlotCount(); yPos++) {
+			if (getInFlightBeanXPos(yPos) != NO_BEAN_IN_YPOS) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the mean, variance, skewness and kurtosis of the slot numbers of
+	 * the beans in slots. By default they are computed by scanning the slots.
+	 * Implementations that keep running statistics should override this to
+	 * return them as a live view, which makes polling constant time.
+	 * 
+	 * @return statistics of the beans in slots
+	 */
+	public default SlotStatistics getSlotStatistics() {
+		SlotStatistics statistics = new SlotStatistics(getSlotCount());
+		for (int i = 0; i < getSlotCount(); i++) {
+			statistics.add(i, getSlotBeanCount(i));
+		}
+		return statistics;
+	}
+}
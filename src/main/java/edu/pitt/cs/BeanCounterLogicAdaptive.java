@@ -0,0 +1,355 @@
+package edu.pitt.cs;
+
+import java.util.Iterator;
+import java.util.Random;
+
+/**
+ * BeanCounterLogicAdaptive: A BeanCounterLogic that picks its engine on every
+ * reset by how much heap the run would take. Runs that fit in the heap budget
+ * go to BeanCounterLogicImpl, which keeps every bean as an object and is what
+ * the GUI animates. Larger runs go to BeanCounterLogicHistogram, which only
+ * keeps counts for landed beans and takes beans from a streaming source as
+ * they are dropped. Both give the same slot distributions through the
+ * BeanCounterLogic interface, so callers do not need to know which one is in
+ * use.
+ *
+ * <p>
+ * The engine is switched at reset, when the size of the new population is
+ * known; the same machine can go back and forth as it is reset with small and
+ * large populations. The engines do not re-drop beans in the same order on
+ * repeat(). Since luck mode beans are interchangeable the outcome has the same
+ * distribution, and skill mode beans land in the same slots either way, but
+ * the in-flight beans of a repeated run differ mid-run.
+ */
+
+public class BeanCounterLogicAdaptive implements BeanCounterLogic {
+	// Estimated heap taken per bean by BeanCounterLogicImpl beyond the beans
+	// themselves: the copy of the bean array and the slot arrays, which can be
+	// up to twice as large as the number of beans in them
+	static final long OBJECT_ENGINE_BYTES_PER_BEAN = 16;
+	// Estimated heap taken by a bean object such as BeanImpl or LazyBean
+	static final long BEAN_BYTES = 48;
+
+	private int slotCount;
+	private long heapBudget;
+	private PegBias bias;			// Pegs of the board, or null for a fair board
+	private BeanCounterLogicImpl objectEngine;
+	private BeanCounterLogicHistogram countsEngine;
+	private BeanCounterLogic engine;
+
+	/**
+	 * Constructor - creates the bean counter logic object that implements the core
+	 * logic with the provided number of slots. Runs may take up to half of the
+	 * maximum heap size.
+	 *
+	 * @param slotCount the number of slots in the machine
+	 */
+	BeanCounterLogicAdaptive(int slotCount) {
+		this(slotCount, Runtime.getRuntime().maxMemory() / 2);
+	}
+
+	/**
+	 * Constructor - creates the bean counter logic object that implements the core
+	 * logic with the provided number of slots.
+	 *
+	 * @param slotCount  the number of slots in the machine
+	 * @param heapBudget the number of bytes of heap a run may take
+	 */
+	BeanCounterLogicAdaptive(int slotCount, long heapBudget) {
+		this(slotCount, heapBudget, null);
+	}
+
+	/**
+	 * Constructor - creates the bean counter logic object for a board with
+	 * biased pegs. Both engines are given the board, so beans bounce off the
+	 * same pegs whichever engine a run is on.
+	 *
+	 * @param slotCount  the number of slots in the machine
+	 * @param heapBudget the number of bytes of heap a run may take
+	 * @param bias       the pegs of the board, or null for a fair board
+	 */
+	BeanCounterLogicAdaptive(int slotCount, long heapBudget, PegBias bias) {
+		this.slotCount = slotCount;
+		this.heapBudget = heapBudget;
+		this.bias = bias;
+		this.objectEngine = new BeanCounterLogicImpl(slotCount, 1, bias);
+		this.engine = objectEngine;
+	}
+
+	/**
+	 * Returns whether the current run is on the counts-based engine.
+	 *
+	 * @return true if beans are only counted once they land
+	 */
+	public boolean isCompact() {
+		return engine != objectEngine;
+	}
+
+	/**
+	 * Returns the counts-based engine, creating it on first use.
+	 *
+	 * @return the counts-based engine
+	 */
+	private BeanCounterLogicHistogram getCountsEngine() {
+		if (countsEngine == null) {
+			countsEngine = new BeanCounterLogicHistogram(slotCount, new Random(), bias);
+		}
+		return countsEngine;
+	}
+
+	/**
+	 * Returns the number of slots the machine was initialized with.
+	 *
+	 * @return number of slots
+	 */
+	public int getSlotCount() {
+		return slotCount;
+	}
+
+	/**
+	 * Returns the number of beans remaining that are waiting to get inserted. A
+	 * count beyond Integer.MAX_VALUE is reported as Integer.MAX_VALUE.
+	 *
+	 * @return number of beans remaining
+	 */
+	public int getRemainingBeanCount() {
+		return engine.getRemainingBeanCount();
+	}
+
+	/**
+	 * Returns the number of beans remaining that are waiting to get inserted,
+	 * without the limit of getRemainingBeanCount().
+	 *
+	 * @return number of beans remaining
+	 */
+	public long getRemainingBeanCountLong() {
+		return engine.getRemainingBeanCountLong();
+	}
+
+	/**
+	 * Returns the x-coordinate for the in-flight bean at the provided y-coordinate.
+	 *
+	 * @param yPos the y-coordinate in which to look for the in-flight bean
+	 * @return the x-coordinate of the in-flight bean; if no bean in y-coordinate, return NO_BEAN_IN_YPOS
+	 */
+	public int getInFlightBeanXPos(int yPos) {
+		return engine.getInFlightBeanXPos(yPos);
+	}
+
+	/**
+	 * Returns the number of in-flight beans at the provided y-coordinate.
+	 *
+	 * @param yPos the y-coordinate in which to count in-flight beans
+	 * @return the number of in-flight beans in that row
+	 */
+	public int getInFlightBeanCount(int yPos) {
+		return engine.getInFlightBeanCount(yPos);
+	}
+
+	/**
+	 * Returns the x-coordinate of the ith in-flight bean at the provided
+	 * y-coordinate, in the order the beans entered the machine.
+	 *
+	 * @param yPos the y-coordinate in which to look for the in-flight bean
+	 * @param i    index of the bean in the row, in [0, getInFlightBeanCount(yPos))
+	 * @return the x-coordinate of the in-flight bean
+	 */
+	public int getInFlightBeanXPos(int yPos, int i) {
+		return engine.getInFlightBeanXPos(yPos, i);
+	}
+
+	/**
+	 * Returns the number of beans in the ith slot. A count beyond
+	 * Integer.MAX_VALUE is reported as Integer.MAX_VALUE.
+	 *
+	 * @param i index of slot
+	 * @return number of beans in slot
+	 */
+	public int getSlotBeanCount(int i) {
+		return engine.getSlotBeanCount(i);
+	}
+
+	/**
+	 * Returns the number of beans in the ith slot, without the limit of
+	 * getSlotBeanCount().
+	 *
+	 * @param i index of slot
+	 * @return number of beans in slot
+	 */
+	public long getSlotBeanCountLong(int i) {
+		return engine.getSlotBeanCountLong(i);
+	}
+
+	/**
+	 * Calculates the average slot number of all the beans in slots.
+	 *
+	 * @return Average slot number of all the beans in slots.
+	 */
+	public double getAverageSlotBeanCount() {
+		return engine.getAverageSlotBeanCount();
+	}
+
+	/**
+	 * Returns the statistics of the beans in slots of the current engine. They
+	 * are kept up to date as beans land and are removed, until the next reset
+	 * may switch engines.
+	 *
+	 * @return statistics of the beans in slots
+	 */
+	public SlotStatistics getSlotStatistics() {
+		return engine.getSlotStatistics();
+	}
+
+	/**
+	 * Removes the lower half of all beans currently in slots, keeping only the
+	 * upper half. If there are an odd number of beans, remove (N-1)/2 beans, where
+	 * N is the number of beans. So, if there are 3 beans, 1 will be removed and 2
+	 * will be remaining.
+	 */
+	public void upperHalf() {
+		engine.upperHalf();
+	}
+
+	/**
+	 * Removes the upper half of all beans currently in slots, keeping only the
+	 * lower half.  If there are an odd number of beans, remove (N-1)/2 beans, where
+	 * N is the number of beans. So, if there are 3 beans, 1 will be removed and 2
+	 * will be remaining.
+	 */
+	public void lowerHalf() {
+		engine.lowerHalf();
+	}
+
+	/**
+	 * A hard reset. Initializes the machine with the passed beans. The beans are
+	 * already in the heap, so the choice depends on what the object engine would
+	 * add on top of them.
+	 *
+	 * @param beans array of beans to add to the machine
+	 * @throws IllegalArgumentException if the counts engine is chosen and the
+	 *                                  beans are not EngineBeans
+	 */
+	public void reset(Bean[] beans) {
+		if (beans.length * OBJECT_ENGINE_BYTES_PER_BEAN <= heapBudget) {
+			engine = objectEngine;
+		} else {
+			engine = getCountsEngine();
+		}
+		engine.reset(beans);
+	}
+
+	/**
+	 * A hard reset with beans pulled from a source, as in
+	 * reset(Iterator, long).
+	 *
+	 * @param beans source of the beans to add to the machine
+	 * @param count the number of beans to take from the source
+	 */
+	public void reset(Iterator<Bean> beans, int count) {
+		reset(beans, (long) count);
+	}
+
+	/**
+	 * A hard reset with beans pulled from a source. The object engine would
+	 * have to hold every bean, so it is only used if all of them fit in the heap
+	 * budget; otherwise beans are pulled as they are dropped.
+	 *
+	 * @param beans source of the beans to add to the machine
+	 * @param count the number of beans to take from the source
+	 */
+	public void reset(Iterator<Bean> beans, long count) {
+		if (count <= Integer.MAX_VALUE - 8
+				&& count * (BEAN_BYTES + OBJECT_ENGINE_BYTES_PER_BEAN) <= heapBudget) {
+			engine = objectEngine;
+		} else {
+			engine = getCountsEngine();
+		}
+		engine.reset(beans, count);
+	}
+
+	/**
+	 * Repeats the experiment by scooping up all beans in the slots and all beans
+	 * in-flight and adding them into the pool of remaining beans. As in the
+	 * beginning, the machine starts with one bean at the top. The run stays on
+	 * the same engine, which decides which beans are dropped again.
+	 */
+	public void repeat() {
+		engine.repeat();
+	}
+
+	/**
+	 * Advances the machine one step. All the in-flight beans fall down one step to
+	 * the next peg. A new bean is inserted into the top of the machine if there are
+	 * beans remaining.
+	 *
+	 * @return whether there has been any status change. If there is no change, that
+	 *         means the machine is finished.
+	 */
+	public boolean advanceStep() {
+		return engine.advanceStep();
+	}
+
+	/**
+	 * Advances the machine up to n steps, stopping early if the machine finishes.
+	 *
+	 * @param n the maximum number of steps to advance
+	 * @return the number of steps that caused a status change
+	 */
+	public long advanceSteps(long n) {
+		return engine.advanceSteps(n);
+	}
+
+	/**
+	 * Advances the machine until it is finished.
+	 *
+	 * @return the number of steps that caused a status change
+	 */
+	public long runToEnd() {
+		return engine.runToEnd();
+	}
+
+	/**
+	 * Returns whether the machine is finished, i.e. there are no beans in-flight
+	 * and no beans waiting.
+	 *
+	 * @return whether the machine is finished
+	 */
+	public boolean isFinished() {
+		return engine.isFinished();
+	}
+
+	/**
+	 * Finishes the run without stepping. On the counts engine, which is picked
+	 * exactly when a run is too large to step through bean by bean, this is
+	 * BeanCounterLogicHistogram.fastForward(); on the object engine, the run is
+	 * simply run to the end.
+	 */
+	public void fastForward() {
+		if (isCompact()) {
+			countsEngine.fastForward();
+		} else {
+			objectEngine.runToEnd();
+		}
+	}
+
+	/**
+	 * Constructs a string representation of the bean count of all the slots.
+	 *
+	 * @return a string with bean counts for each slot
+	 */
+	public String getSlotString() {
+		return isCompact() ? countsEngine.getSlotString() : objectEngine.getSlotString();
+	}
+
+	/**
+	 * Constructs a string representation of the machine. On the object engine
+	 * this is the drawing of BeanCounterLogicImpl.toString(), pegs and slots;
+	 * the counts engine does not draw its pegs, so a compact run shows only the
+	 * slot bean counts.
+	 *
+	 * @return the string representation of the machine
+	 */
+	public String toString() {
+		return isCompact() ? countsEngine.getSlotString() : objectEngine.toString();
+	}
+}
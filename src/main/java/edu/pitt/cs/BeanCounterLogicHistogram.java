@@ -0,0 +1,721 @@
+package edu.pitt.cs;
+
+import java.util.Formatter;
+import java.util.Iterator;
+import java.util.Random;
+
+/**
+ * BeanCounterLogicHistogram: A BeanCounterLogic engine for large experiments.
+ * Its slot counts have the same distribution as those of BeanCounterLogicImpl,
+ * but it does not keep track of which bean landed in which slot. Instead, each
+ * slot is a single primitive counter, so a landed bean costs no heap space at
+ * all. Without bean identities, repeat() cannot re-drop the same beans in the
+ * same order as BeanCounterLogicImpl; how it differs in each mode is described
+ * below.
+ *
+ * <p>
+ * In luck mode, beans are interchangeable: at each peg, every bean has the
+ * same chance of going right regardless of its identity, 50/50 on a fair
+ * board or the chance of the peg if the machine has a PegBias. That means that
+ * when repeat() scoops up N beans, any N beans from the original population
+ * can be re-dropped with the same observable behavior. The engine therefore
+ * only keeps the original bean array (which the caller holds anyway) and
+ * re-drops its first N beans on repeat(). Those are generally not the beans
+ * BeanCounterLogicImpl would re-drop, so a repeated run matches it in
+ * distribution only.
+ *
+ * <p>
+ * In skill mode, a bean with skill level S always lands in slot S (skill
+ * levels are clamped to [0, slotCount-1]). So the (slot x skill level) count
+ * matrix of landed beans is diagonal and the slot counts double as the skill
+ * distribution of the landed beans. On repeat(), the skill distribution of all
+ * beans in the machine is collected into skillCounts and beans are dropped
+ * from it, lowest skill level first. BeanCounterLogicImpl instead re-drops the
+ * waiting beans first, then the beans in the slots, then the in-flight beans,
+ * so after a repeat() the two machines drop beans in a different order and
+ * getInFlightBeanXPos() differs mid-run. Every bean still lands in the slot of
+ * its skill level, so the slot counts at the end of the run are identical. A
+ * SkillPopulation, which is nothing but such counts, can be passed to reset()
+ * directly.
+ *
+ * <p>
+ * In-flight skill mode beans are tracked by skill level alone: a bean with
+ * skill level S in row y is at x = min(S, y), which is where BeanImpl would
+ * be. So no bean objects are created or advanced in skill mode, and the beans
+ * passed to reset() are only asked for their skill levels.
+ *
+ * <p>
+ * Only the beans that are currently in-flight are tracked individually.
+ * Counts are longs throughout, so with a streaming reset or a SkillPopulation
+ * and fastForward() the machine handles more than Integer.MAX_VALUE beans;
+ * getSlotBeanCountLong() and getRemainingBeanCountLong() report them. After
+ * reset(Iterator, long) even the population is not kept: beans are taken from
+ * the source one at a time as they are dropped. In luck mode, landed beans are
+ * kept on a stack of at most slotCount beans and dropped again on repeat()
+ * once the source has run out, which is all that is needed since no more than
+ * slotCount beans are ever in-flight at once. Memory use is then independent
+ * of the number of beans.
+ *
+ * <p>
+ * fastForward() completes a run without simulating individual bounces. In
+ * luck mode, the beans that reach a peg split between its left and right
+ * neighbors according to a single binomial draw with the chance of that peg,
+ * so the whole board is resolved with one draw per peg regardless of the
+ * number of beans. In skill mode, the outcome is already known: every bean is
+ * added straight to the slot matching its skill level.
+ */
+
+public class BeanCounterLogicHistogram implements BeanCounterLogic {
+	private static final int NO_BEAN = -1;
+
+	private int slotCount;
+	private Random rand;			// Used by fastForward() in place of the beans' own generators
+	private PegBias bias;			// Pegs of the board, or null for a fair board
+	private boolean isLuck;
+	private Bean[] beans;			// The bean population passed in on reset
+	private int waitingHead;		// Index into beans of the next bean to drop
+	private int waitingEnd;			// One past the index of the last waiting bean
+	private long[] skillCounts;		// Waiting beans per skill level, or null if dropping from beans
+	private int waitingSkill;		// Lowest skill level with waiting beans in skillCounts
+	private Iterator<Bean> source;	// Source of the beans after a streaming reset, or null
+	private long sourceRemaining;	// Number of beans not yet taken from source
+	private Bean[] recycled;		// Landed luck mode beans to drop again after a streaming reset
+	private int recycledCount;
+	private long remaining;
+	private Bean[] inFlightBeans;	// Luck mode beans in each row
+	private int[] inFlightSkills;	// Skill level of the skill mode bean in each row, or NO_BEAN
+	private long[] slotCounts;
+	private SlotStatistics statistics;	// Running statistics of the beans in slots
+
+	/**
+	 * Constructor - creates the bean counter logic object that implements the core
+	 * logic with the provided number of slots.
+	 *
+	 * @param slotCount the number of slots in the machine
+	 */
+	BeanCounterLogicHistogram(int slotCount) {
+		this(slotCount, new Random());
+	}
+
+	/**
+	 * Constructor - creates the bean counter logic object that implements the core
+	 * logic with the provided number of slots.
+	 *
+	 * @param slotCount the number of slots in the machine
+	 * @param rand      the random number generator used by fastForward()
+	 */
+	BeanCounterLogicHistogram(int slotCount, Random rand) {
+		this(slotCount, rand, null);
+	}
+
+	/**
+	 * Constructor - creates the bean counter logic object for a board with
+	 * biased pegs. In-flight luck mode beans bounce off the pegs with
+	 * EngineBean.advanceStep(PegBias), and fastForward() draws with the chance
+	 * of each peg.
+	 *
+	 * @param slotCount the number of slots in the machine
+	 * @param rand      the random number generator used by fastForward()
+	 * @param bias      the pegs of the board, or null for a fair board
+	 */
+	BeanCounterLogicHistogram(int slotCount, Random rand, PegBias bias) {
+		if (bias != null) {
+			bias.checkSlotCount(slotCount);
+		}
+		this.slotCount = slotCount;
+		this.rand = rand;
+		this.bias = bias;
+		this.isLuck = true;
+		this.beans = new Bean[0];
+		this.inFlightBeans = new Bean[slotCount];
+		this.inFlightSkills = new int[slotCount];
+		this.slotCounts = new long[slotCount];
+		this.statistics = new SlotStatistics(slotCount);
+		this.recycled = new Bean[slotCount];
+		clear();
+	}
+
+	/**
+	 * Returns the number of slots the machine was initialized with.
+	 *
+	 * @return number of slots
+	 */
+	public int getSlotCount() {
+		return slotCount;
+	}
+
+	/**
+	 * Returns the number of beans remaining that are waiting to get inserted. A
+	 * count beyond Integer.MAX_VALUE is reported as Integer.MAX_VALUE.
+	 *
+	 * @return number of beans remaining
+	 */
+	public int getRemainingBeanCount() {
+		return (int) Math.min(remaining, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Returns the number of beans remaining that are waiting to get inserted,
+	 * without the limit of getRemainingBeanCount().
+	 *
+	 * @return number of beans remaining
+	 */
+	public long getRemainingBeanCountLong() {
+		return remaining;
+	}
+
+	/**
+	 * Returns the x-coordinate for the in-flight bean at the provided y-coordinate.
+	 *
+	 * @param yPos the y-coordinate in which to look for the in-flight bean
+	 * @return the x-coordinate of the in-flight bean; if no bean in y-coordinate, return NO_BEAN_IN_YPOS
+	 */
+	public int getInFlightBeanXPos(int yPos) {
+		if (!isLuck) {
+			int skill = inFlightSkills[yPos];
+			return skill == NO_BEAN ? NO_BEAN_IN_YPOS : Math.min(skill, yPos);
+		}
+		if (inFlightBeans[yPos] == null) {
+			return NO_BEAN_IN_YPOS;
+		}
+		return inFlightBeans[yPos].getXPos();
+	}
+
+	/**
+	 * Returns the number of beans in the ith slot. A count beyond
+	 * Integer.MAX_VALUE is reported as Integer.MAX_VALUE.
+	 *
+	 * @param i index of slot
+	 * @return number of beans in slot
+	 */
+	public int getSlotBeanCount(int i) {
+		return (int) Math.min(slotCounts[i], Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Returns the number of beans in the ith slot, without the limit of
+	 * getSlotBeanCount().
+	 *
+	 * @param i index of slot
+	 * @return number of beans in slot
+	 */
+	public long getSlotBeanCountLong(int i) {
+		return slotCounts[i];
+	}
+
+	/**
+	 * Calculates the average slot number of all the beans in slots.
+	 *
+	 * @return Average slot number of all the beans in slots.
+	 */
+	public double getAverageSlotBeanCount() {
+		return statistics.getMean();
+	}
+
+	/**
+	 * Returns the statistics of the beans in slots. They are kept up to date as
+	 * beans land and are removed, so the returned object is a live view.
+	 *
+	 * @return statistics of the beans in slots
+	 */
+	public SlotStatistics getSlotStatistics() {
+		return statistics;
+	}
+
+	/**
+	 * Returns the total number of beans currently in slots.
+	 *
+	 * @return number of beans in slots
+	 */
+	private long getInSlotsBeanCount() {
+		return statistics.getCount();
+	}
+
+	/**
+	 * Removes the lower half of all beans currently in slots, keeping only the
+	 * upper half. If there are an odd number of beans, remove (N-1)/2 beans, where
+	 * N is the number of beans. So, if there are 3 beans, 1 will be removed and 2
+	 * will be remaining.
+	 */
+	public void upperHalf() {
+		long beansToRemove = getInSlotsBeanCount() / 2;
+		for (int i = 0; i < slotCount && beansToRemove > 0; i++) {
+			long removed = Math.min(slotCounts[i], beansToRemove);
+			slotCounts[i] -= removed;
+			statistics.remove(i, removed);
+			beansToRemove -= removed;
+		}
+	}
+
+	/**
+	 * Removes the upper half of all beans currently in slots, keeping only the
+	 * lower half.  If there are an odd number of beans, remove (N-1)/2 beans, where
+	 * N is the number of beans. So, if there are 3 beans, 1 will be removed and 2
+	 * will be remaining.
+	 */
+	public void lowerHalf() {
+		long beansToRemove = getInSlotsBeanCount() / 2;
+		for (int i = slotCount - 1; i >= 0 && beansToRemove > 0; i--) {
+			long removed = Math.min(slotCounts[i], beansToRemove);
+			slotCounts[i] -= removed;
+			statistics.remove(i, removed);
+			beansToRemove -= removed;
+		}
+	}
+
+	/**
+	 * A hard reset. Initializes the machine with the passed beans. The machine
+	 * starts with one bean at the top. Unlike BeanCounterLogicImpl, the array is
+	 * not copied since it may hold tens of millions of beans; the caller must not
+	 * modify it while the machine is in use. All beans must be in the same mode.
+	 *
+	 * @param beans array of beans to add to the machine
+	 * @throws IllegalArgumentException if the beans are not EngineBeans
+	 */
+	public void reset(Bean[] beans) {
+		this.isLuck = beans.length == 0 || EngineBean.of(beans[0]).isLuck();
+		this.beans = beans;
+		this.source = null;
+		clear();
+		clearRecycled();
+		for (int i = 0; i < beans.length; i++) {
+			beans[i].reset();
+		}
+		waitingHead = 0;
+		waitingEnd = beans.length;
+		skillCounts = null;
+		remaining = beans.length;
+		insertBeanAtTop();
+	}
+
+	/**
+	 * A hard reset with beans taken from a source as they are dropped, as in
+	 * reset(Iterator, long).
+	 *
+	 * @param beans source of the beans to add to the machine
+	 * @param count the number of beans to take from the source
+	 * @throws IllegalArgumentException if the beans are not EngineBeans
+	 */
+	public void reset(Iterator<Bean> beans, int count) {
+		reset(beans, (long) count);
+	}
+
+	/**
+	 * A hard reset with beans taken from a source as they are dropped. The
+	 * machine starts with one bean at the top, which is the first bean taken.
+	 * All beans must be in the same mode. The source may be endless, as long as
+	 * it yields at least count beans.
+	 *
+	 * @param beans source of the beans to add to the machine
+	 * @param count the number of beans to take from the source
+	 * @throws IllegalArgumentException if the beans are not EngineBeans
+	 */
+	public void reset(Iterator<Bean> beans, long count) {
+		this.beans = new Bean[0];
+		this.isLuck = true;
+		this.source = beans;
+		this.sourceRemaining = count;
+		clear();
+		clearRecycled();
+		waitingHead = 0;
+		waitingEnd = 0;
+		skillCounts = null;
+		remaining = count;
+		if (count > 0) {
+			// The first bean tells the mode of the population
+			Bean first = takeStreamedBean();
+			remaining--;
+			isLuck = EngineBean.of(first).isLuck();
+			placeAtTop(first);
+		}
+	}
+
+	/**
+	 * A hard reset. Initializes the machine with a population of skill mode beans
+	 * given as the number of beans at each skill level. Beans are dropped lowest
+	 * skill level first. The machine starts with one bean at the top.
+	 *
+	 * @param population the beans to add to the machine
+	 */
+	public void reset(SkillPopulation population) {
+		this.beans = new Bean[0];
+		this.isLuck = false;
+		this.source = null;
+		clear();
+		clearRecycled();
+		waitingHead = 0;
+		waitingEnd = 0;
+		skillCounts = new long[slotCount];
+		remaining = 0;
+		for (int k = 0; k < population.getSlotCount(); k++) {
+			skillCounts[Math.min(k, slotCount - 1)] += population.getCount(k);
+			remaining += population.getCount(k);
+		}
+		waitingSkill = 0;
+		insertBeanAtTop();
+	}
+
+	/**
+	 * Repeats the experiment by scooping up all beans in the slots and all beans
+	 * in-flight and adding them into the pool of remaining beans. As in the
+	 * beginning, the machine starts with one bean at the top. In luck mode, the
+	 * first N beans of the population are re-dropped, where N is the number of
+	 * beans scooped up plus the ones still waiting; after a streaming reset, the
+	 * beans left in the source are dropped first and then the recycled ones. In
+	 * skill mode, beans are dropped again with the same skill levels as the beans
+	 * scooped up.
+	 */
+	public void repeat() {
+		if (isLuck) {
+			long total = getInSlotsBeanCount() + remaining;
+			for (int i = 0; i < slotCount; i++) {
+				if (inFlightBeans[i] != null) {
+					total++;
+				}
+			}
+			if (source != null) {
+				for (int i = 0; i < slotCount; i++) {
+					if (inFlightBeans[i] != null) {
+						recycle(inFlightBeans[i]);
+					}
+				}
+			} else {
+				for (int i = 0; i < total; i++) {
+					beans[i].reset();
+				}
+				waitingHead = 0;
+				waitingEnd = (int) total;
+			}
+			clear();
+			remaining = total;
+		} else {
+			long[] counts = collectSkillCounts();
+			clear();
+			skillCounts = counts;
+			waitingSkill = 0;
+			remaining = 0;
+			for (int i = 0; i < slotCount; i++) {
+				remaining += counts[i];
+			}
+		}
+		insertBeanAtTop();
+	}
+
+	/**
+	 * Builds the skill distribution of all the beans in the machine: the ones in
+	 * slots, the ones in-flight, and the ones still waiting. Beans still in the
+	 * source of a streaming reset are taken from it and counted.
+	 *
+	 * @return number of beans for each skill level
+	 */
+	private long[] collectSkillCounts() {
+		long[] counts = slotCounts.clone();
+		for (int i = 0; i < slotCount; i++) {
+			if (inFlightSkills[i] != NO_BEAN) {
+				counts[inFlightSkills[i]]++;
+			}
+		}
+		if (skillCounts != null) {
+			for (int i = 0; i < slotCount; i++) {
+				counts[i] += skillCounts[i];
+			}
+		} else if (source != null) {
+			for (; sourceRemaining > 0; sourceRemaining--) {
+				counts[getSkillClass(source.next())]++;
+			}
+		} else {
+			for (int i = waitingHead; i < waitingEnd; i++) {
+				counts[getSkillClass(beans[i])]++;
+			}
+		}
+		return counts;
+	}
+
+	/**
+	 * Returns the skill level of the bean as seen by this machine. Beans created
+	 * for a machine with more slots may have a higher skill level than there are
+	 * slots, but they behave exactly like a bean with skill level slotCount-1.
+	 *
+	 * @param bean the skill mode bean
+	 * @return the skill level clamped to [0, slotCount-1]
+	 * @throws IllegalArgumentException if the bean is not an EngineBean
+	 */
+	private int getSkillClass(Bean bean) {
+		return Math.min(EngineBean.of(bean).getSkillLevel(), slotCount - 1);
+	}
+
+	/**
+	 * Empties the slots and removes all in-flight beans.
+	 */
+	private void clear() {
+		for (int i = 0; i < slotCount; i++) {
+			inFlightBeans[i] = null;
+			inFlightSkills[i] = NO_BEAN;
+			slotCounts[i] = 0;
+		}
+		statistics.clear();
+	}
+
+	/**
+	 * Adds landed beans to a slot.
+	 *
+	 * @param slot  the slot number
+	 * @param beans the number of beans that landed
+	 */
+	private void addToSlot(int slot, long beans) {
+		slotCounts[slot] += beans;
+		statistics.add(slot, beans);
+	}
+
+	/**
+	 * Forgets the recycled beans.
+	 */
+	private void clearRecycled() {
+		for (int i = 0; i < recycledCount; i++) {
+			recycled[i] = null;
+		}
+		recycledCount = 0;
+	}
+
+	/**
+	 * Keeps a landed luck mode bean to be dropped again after a streaming reset.
+	 * At most slotCount beans are kept; the rest are left to the garbage
+	 * collector.
+	 *
+	 * @param bean the bean that is done falling
+	 */
+	private void recycle(Bean bean) {
+		if (recycledCount < recycled.length) {
+			recycled[recycledCount++] = bean;
+		}
+	}
+
+	/**
+	 * Takes the next bean after a streaming reset: from the source while it has
+	 * beans left, otherwise a recycled one.
+	 *
+	 * @return the bean, reset to its initial state
+	 */
+	private Bean takeStreamedBean() {
+		Bean bean;
+		if (sourceRemaining > 0) {
+			sourceRemaining--;
+			bean = source.next();
+		} else {
+			bean = recycled[--recycledCount];
+			recycled[recycledCount] = null;
+		}
+		bean.reset();
+		return bean;
+	}
+
+	/**
+	 * Puts the next waiting bean, if any, at the top of the machine.
+	 *
+	 * @return whether a bean was inserted
+	 */
+	private boolean insertBeanAtTop() {
+		if (remaining == 0) {
+			return false;
+		}
+		remaining--;
+		if (skillCounts == null) {
+			placeAtTop(source != null ? takeStreamedBean() : beans[waitingHead++]);
+			return true;
+		}
+		while (skillCounts[waitingSkill] == 0) {
+			waitingSkill++;
+		}
+		skillCounts[waitingSkill]--;
+		inFlightSkills[0] = waitingSkill;
+		return true;
+	}
+
+	/**
+	 * Puts the given bean in the top row; in skill mode only its skill level is
+	 * kept.
+	 *
+	 * @param bean the bean to drop
+	 */
+	private void placeAtTop(Bean bean) {
+		if (isLuck) {
+			inFlightBeans[0] = bean;
+		} else {
+			inFlightSkills[0] = getSkillClass(bean);
+		}
+	}
+
+	/**
+	 * Advances the machine one step. All the in-flight beans fall down one step to
+	 * the next peg. A new bean is inserted into the top of the machine if there are
+	 * beans remaining.
+	 *
+	 * @return whether there has been any status change. If there is no change, that
+	 *         means the machine is finished.
+	 */
+	public boolean advanceStep() {
+		boolean change = isLuck ? advanceLuckBeans() : advanceSkillBeans();
+		return insertBeanAtTop() || change;
+	}
+
+	/**
+	 * Moves all in-flight luck mode beans down one row.
+	 *
+	 * @return whether there were any beans in-flight
+	 */
+	private boolean advanceLuckBeans() {
+		boolean change = false;
+
+		// The bean in the last row falls into its slot and is forgotten
+		Bean landing = inFlightBeans[slotCount - 1];
+		if (landing != null) {
+			addToSlot(landing.getXPos(), 1);
+			inFlightBeans[slotCount - 1] = null;
+			if (source != null) {
+				recycle(landing);
+			}
+			change = true;
+		}
+
+		for (int i = slotCount - 2; i >= 0; i--) {
+			Bean bean = inFlightBeans[i];
+			if (bean != null) {
+				if (bias == null) {
+					bean.advanceStep();
+				} else {
+					EngineBean.of(bean).advanceStep(bias);
+				}
+				inFlightBeans[i + 1] = bean;
+				inFlightBeans[i] = null;
+				change = true;
+			}
+		}
+		return change;
+	}
+
+	/**
+	 * Moves all in-flight skill mode beans down one row. A bean in the last row
+	 * has gone right as often as its skill level allows, so it lands in the
+	 * slot matching its skill level.
+	 *
+	 * @return whether there were any beans in-flight
+	 */
+	private boolean advanceSkillBeans() {
+		boolean change = false;
+
+		int landing = inFlightSkills[slotCount - 1];
+		if (landing != NO_BEAN) {
+			addToSlot(landing, 1);
+			inFlightSkills[slotCount - 1] = NO_BEAN;
+			change = true;
+		}
+
+		for (int i = slotCount - 2; i >= 0; i--) {
+			if (inFlightSkills[i] != NO_BEAN) {
+				inFlightSkills[i + 1] = inFlightSkills[i];
+				inFlightSkills[i] = NO_BEAN;
+				change = true;
+			}
+		}
+		return change;
+	}
+
+	/**
+	 * Finishes the run in luck mode by resolving all waiting and in-flight beans
+	 * straight to their slots. Beans are pushed through the board one row at a
+	 * time as counts: of the c beans at a peg, Binomial(c, p) go right and the
+	 * rest go left, where p is 0.5 or the chance of the peg on a biased board.
+	 * In-flight beans join the counts at their current peg. The resulting slot
+	 * counts follow exactly the same distribution as when advanceStep() is
+	 * called until the machine finishes, although the draws come from the
+	 * machine's random number generator rather than the beans'.
+	 * In skill mode, beans are resolved straight to their slots, see
+	 * resolveSkillBeans().
+	 */
+	public void fastForward() {
+		if (!isLuck) {
+			resolveSkillBeans();
+			return;
+		}
+		long[] counts = new long[slotCount];
+		long[] next = new long[slotCount];
+		counts[0] = remaining;
+		for (int row = 0; row < slotCount; row++) {
+			if (inFlightBeans[row] != null) {
+				counts[inFlightBeans[row].getXPos()]++;
+				if (source != null) {
+					recycle(inFlightBeans[row]);
+				}
+				inFlightBeans[row] = null;
+			}
+			if (row == slotCount - 1) {
+				break;
+			}
+			for (int x = 0; x <= row + 1; x++) {
+				next[x] = 0;
+			}
+			for (int x = 0; x <= row; x++) {
+				double p = bias == null ? 0.5 : bias.getProbability(x, row);
+				long right = BinomialSampler.sample(counts[x], p, rand);
+				next[x] += counts[x] - right;
+				next[x + 1] += right;
+			}
+			long[] tmp = counts;
+			counts = next;
+			next = tmp;
+		}
+		for (int i = 0; i < slotCount; i++) {
+			addToSlot(i, counts[i]);
+		}
+		// Beans never taken from the source of a streaming reset stay there and
+		// stand in for the landed ones if the experiment is repeated
+		waitingHead = waitingEnd;
+		remaining = 0;
+	}
+
+	/**
+	 * Finishes the run in skill mode. A bean with skill level S goes right S
+	 * times and lands in slot S no matter which row it is in, so in-flight beans
+	 * are dropped into their slots and waiting beans are added to the slots in
+	 * bulk, one addition per skill level. The outcome is identical to calling
+	 * advanceStep() until the machine finishes.
+	 */
+	private void resolveSkillBeans() {
+		long[] counts = collectSkillCounts();
+		statistics.clear();
+		for (int i = 0; i < slotCount; i++) {
+			inFlightSkills[i] = NO_BEAN;
+			slotCounts[i] = 0;
+			addToSlot(i, counts[i]);
+		}
+		waitingHead = waitingEnd;
+		if (skillCounts != null) {
+			for (int i = 0; i < slotCount; i++) {
+				skillCounts[i] = 0;
+			}
+		}
+		remaining = 0;
+	}
+
+	/**
+	 * Constructs a string representation of the bean count of all the slots.
+	 * Counts take 4 characters each like in BeanCounterLogicImpl, or more when a
+	 * count has more than 3 digits, so that counts are always separated.
+	 *
+	 * @return a string with bean counts for each slot
+	 */
+	public String getSlotString() {
+		long max = 0;
+		for (int i = 0; i < slotCount; i++) {
+			max = Math.max(max, slotCounts[i]);
+		}
+		String format = "%" + Math.max(4, Long.toString(max).length() + 1) + "d";
+		StringBuilder bld = new StringBuilder();
+		Formatter fmt = new Formatter(bld);
+		for (int i = 0; i < slotCount; i++) {
+			fmt.format(format, slotCounts[i]);
+		}
+		fmt.close();
+		return bld.toString();
+	}
+}
@@ -1,9 +1,9 @@
 package edu.pitt.cs;
 
 import java.util.Formatter;
-import java.util.LinkedList;
-import java.util.Queue;
 import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.stream.Stream;
 
 /**
  * Code by @author Wonsun Ahn.  Copyright Fall 2022.
@@ -40,10 +40,20 @@ import java.util.Random;
 public class BeanCounterLogicImpl implements BeanCounterLogic {
 	// TODO: Add member methods and variables as needed
 	private int slotCount;
-	private Bean[] beans;
-	private Queue<Bean> waitingBeans;
-	private Bean[] inFlightBeans;
-	private LinkedList<Bean>[] slots;
+	private Bean[] beans;			// Ring buffer of waiting beans; sized to hold every bean
+	private int waitingHead;		// Index in beans of the next bean to drop
+	private int waitingCount;		// Number of beans in the ring buffer
+	private int hopperWidth;		// Number of beans that enter the machine per step
+	private PegBias bias;			// Pegs of the board, or null for a fair board
+	private Bean[] inFlightBeans;	// Ring of rows of hopperWidth beans each; row y is row (topRow + y) % slotCount
+	private int[] rowSizes;			// Number of beans in each row of inFlightBeans
+	private int topRow;				// Row of inFlightBeans that is row 0
+	private long[] occupiedRows;	// Bit i is set if row i of inFlightBeans holds a bean
+	private int inFlightCount;
+	private long stepCount;			// Steps taken since the last reset or repeat
+	private SlotQueue[] slots;
+	private FenwickTree slotTree;		// Bean counts of the slots, for finding percentiles
+	private SlotStatistics statistics;	// Running statistics of the beans in slots
 
 
 	/**
@@ -53,8 +63,45 @@ public class BeanCounterLogicImpl implements BeanCounterLogic {
 	 * @param slotCount the number of slots in the machine
 	 */
 	BeanCounterLogicImpl(int slotCount) {
-		// TODO: Implement
+		this(slotCount, 1);
+	}
+
+	/**
+	 * Constructor - creates the bean counter logic object that implements the core
+	 * logic with the provided number of slots and a hopper that drops up to
+	 * hopperWidth beans into the top row every step. Each row then holds a batch
+	 * of up to hopperWidth beans, which fall and bounce together, so a run takes
+	 * about hopperWidth times fewer steps.
+	 * 
+	 * @param slotCount   the number of slots in the machine
+	 * @param hopperWidth the number of beans that enter the machine per step
+	 */
+	BeanCounterLogicImpl(int slotCount, int hopperWidth) {
+		this(slotCount, hopperWidth, null);
+	}
+
+	/**
+	 * Constructor - creates the bean counter logic object for a board with
+	 * biased pegs. Luck mode beans bounce off the pegs with
+	 * EngineBean.advanceStep(PegBias), so they must be EngineBeans.
+	 * 
+	 * @param slotCount   the number of slots in the machine
+	 * @param hopperWidth the number of beans that enter the machine per step
+	 * @param bias        the pegs of the board, or null for a fair board
+	 */
+	BeanCounterLogicImpl(int slotCount, int hopperWidth, PegBias bias) {
+		if (hopperWidth < 1) {
+			throw new IllegalArgumentException("Invalid hopper width: " + hopperWidth);
+		}
+		if (bias != null) {
+			bias.checkSlotCount(slotCount);
+		}
 		this.slotCount = slotCount;
+		this.hopperWidth = hopperWidth;
+		this.bias = bias;
+		this.beans = new Bean[0];
+		this.statistics = new SlotStatistics(slotCount);
+		this.slotTree = new FenwickTree(slotCount);
 	}
 
 	/**
@@ -74,25 +121,76 @@ public class BeanCounterLogicImpl implements BeanCounterLogic {
 	 */
 	public int getRemainingBeanCount() {
 		// TODO: Implement
-		return waitingBeans.size();
+		return waitingCount;
+	}
+
+	/**
+	 * Returns the number of beans that enter the machine per step.
+	 * 
+	 * @return the hopper width
+	 */
+	public int getHopperWidth() {
+		return hopperWidth;
 	}
 
 	/**
 	 * Returns the x-coordinate for the in-flight bean at the provided y-coordinate.
+	 * With a hopper wider than 1, this is the first bean of the row.
 	 * 
 	 * @param yPos the y-coordinate in which to look for the in-flight bean
 	 * @return the x-coordinate of the in-flight bean; if no bean in y-coordinate, return NO_BEAN_IN_YPOS
 	 */
 	public int getInFlightBeanXPos(int yPos) {
 		// TODO: Implement
-		if (inFlightBeans[yPos] == null) {
+		int row = getRowIndex(yPos);
+		if (rowSizes[row] == 0) {
 			return NO_BEAN_IN_YPOS;
 		} else {
-			return inFlightBeans[yPos].getXPos();
+			return inFlightBeans[row * hopperWidth].getXPos();
 		}
 		
 	}
 
+	/**
+	 * Returns the number of in-flight beans at the provided y-coordinate.
+	 * 
+	 * @param yPos the y-coordinate in which to count in-flight beans
+	 * @return the number of in-flight beans in that row, at most getHopperWidth()
+	 */
+	public int getInFlightBeanCount(int yPos) {
+		return rowSizes[getRowIndex(yPos)];
+	}
+
+	/**
+	 * Returns the x-coordinate of the ith in-flight bean at the provided
+	 * y-coordinate, in the order the beans entered the machine.
+	 * 
+	 * @param yPos the y-coordinate in which to look for the in-flight bean
+	 * @param i    index of the bean in the row, in [0, getInFlightBeanCount(yPos))
+	 * @return the x-coordinate of the in-flight bean
+	 */
+	public int getInFlightBeanXPos(int yPos, int i) {
+		int row = getRowIndex(yPos);
+		if (i < 0 || i >= rowSizes[row]) {
+			throw new IndexOutOfBoundsException("No in-flight bean " + i + " in row " + yPos);
+		}
+		return inFlightBeans[row * hopperWidth + i].getXPos();
+	}
+
+	/**
+	 * Returns the row of inFlightBeans where the given row is stored. Rows
+	 * rotate through inFlightBeans so that beans falling one row does not
+	 * require moving them. Row r takes up the hopperWidth entries of
+	 * inFlightBeans starting at r * hopperWidth.
+	 * 
+	 * @param yPos the y-coordinate of the row
+	 * @return the row of inFlightBeans holding it
+	 */
+	private int getRowIndex(int yPos) {
+		int index = topRow + yPos;
+		return index >= slotCount ? index - slotCount : index;
+	}
+
 	/**
 	 * Returns the number of beans in the ith slot.
 	 * 
@@ -111,20 +209,17 @@ public class BeanCounterLogicImpl implements BeanCounterLogic {
 	 */
 	public double getAverageSlotBeanCount() {
 		// TODO: Implement
-		double sum = 0;
-		double total = 0;
-		for (int i = 0; i < slotCount; i++) {
-			int beanCount = slots[i].size();
-			sum += (double) beanCount * i;
-			total += (double) beanCount;
-		}
+		return statistics.getMean();
+	}
 
-		if (total > 0) {
-			return sum / total;
-		} else {
-			return 0.0;
-		}
-		
+	/**
+	 * Returns the statistics of the beans in slots. They are kept up to date as
+	 * beans land and are removed, so the returned object is a live view.
+	 * 
+	 * @return statistics of the beans in slots
+	 */
+	public SlotStatistics getSlotStatistics() {
+		return statistics;
 	}
 
 	/**
@@ -135,34 +230,7 @@ public class BeanCounterLogicImpl implements BeanCounterLogic {
 	 */
 	public void upperHalf() {
 		// TODO: Implement
-
-		//get total number of beans in slots
-		int total = 0;
-		for (int i = 0; i < slotCount; i++) {
-			total += slots[i].size();
-		}
-
-		//figure out how many beans to remove
-		int beansToRemove = 0;
-		if (total % 2 == 0) {
-			beansToRemove = total / 2;
-		} else {
-			beansToRemove = (total - 1) / 2;
-		}
-
-		//remove lower half of beans
-		for (int i = 0; i < slots.length && beansToRemove > 0; i++) {
-			int count = slots[i].size();
-			if (beansToRemove > count) {
-				slots[i].clear();
-				beansToRemove -= count;
-			} else {
-				while (beansToRemove > 0) {
-					slots[i].pop();
-					beansToRemove--;
-				}
-			}
-		}
+		keepRange(50, 100);
 	}
 
 	/**
@@ -172,46 +240,112 @@ public class BeanCounterLogicImpl implements BeanCounterLogic {
 	 * will be remaining.
 	 */
 	public void lowerHalf() {
+		keepRange(0, 50);
+	}
 
-		//get total number of beans in slots
-		int total = 0;
-		for (int i = 0; i < slotCount; i++) {
-			total += slots[i].size();
+	/**
+	 * Keeps only the beans between two percentiles of the beans currently in
+	 * slots, ordered by slot number. Of N beans, floor(N * lowPct / 100) are
+	 * removed from the lowest slots and floor(N * (100 - highPct) / 100) from the
+	 * highest slots. Within a slot, the earliest landed beans are removed first.
+	 * So upperHalf() is keepRange(50, 100) and lowerHalf() is keepRange(0, 50).
+	 * 
+	 * <p>
+	 * The slot where each cut falls is found with a Fenwick tree over the slot
+	 * counts, and each slot gives up its beans in one go, so the cost grows with
+	 * the number of slots emptied rather than the number of beans removed.
+	 * 
+	 * @param lowPct  the percentile below which beans are removed, in [0, 100]
+	 * @param highPct the percentile above which beans are removed, in [lowPct, 100]
+	 */
+	public void keepRange(double lowPct, double highPct) {
+		if (!(0 <= lowPct && lowPct <= highPct && highPct <= 100)) {
+			throw new IllegalArgumentException("Invalid percentile range: " + lowPct + " to " + highPct);
+		}
+		long total = slotTree.getTotal();
+		long lowCount = (long) Math.floor(total * lowPct / 100);
+		long highCount = Math.min(total - lowCount, (long) Math.floor(total * (100 - highPct) / 100));
+		while (lowCount > 0) {
+			int slot = slotTree.findRank(0);
+			int removed = (int) Math.min(lowCount, slots[slot].size());
+			removeFromSlot(slot, removed);
+			lowCount -= removed;
+		}
+		while (highCount > 0) {
+			int slot = slotTree.findRank(slotTree.getTotal() - 1);
+			int removed = (int) Math.min(highCount, slots[slot].size());
+			removeFromSlot(slot, removed);
+			highCount -= removed;
 		}
+	}
 
-		//figure out how many beans to remove
-		int beansToRemove = 0;
-		if (total % 2 == 0) {
-			beansToRemove = total / 2;
-		} else {
-			beansToRemove = (total - 1) / 2;
-		}
-		//remove upper half of beans
-		for (int i = slots.length - 1; i >= 0 && beansToRemove > 0; i--) {
-			int count = slots[i].size();
-			if (beansToRemove > count) {
-				slots[i].clear();
-				beansToRemove -= count;
-			} else {
-				while (beansToRemove > 0) {
-					slots[i].pop();
-					beansToRemove--;
-				}
-			}
+	/**
+	 * Returns the slot of the bean at the given percentile of the beans in
+	 * slots, by the nearest-rank method: the bean of rank ceil(N * pct / 100)
+	 * in slot order, counting from 1.
+	 * 
+	 * @param pct the percentile, in [0, 100]
+	 * @return the slot number, or -1 if there are no beans in slots
+	 */
+	public int getSlotPercentile(double pct) {
+		long total = slotTree.getTotal();
+		if (total == 0) {
+			return -1;
 		}
+		long rank = (long) Math.ceil(total * pct / 100) - 1;
+		return slotTree.findRank(Math.max(0, Math.min(total - 1, rank)));
+	}
+
+	/**
+	 * Returns the slot of the median bean in slots.
+	 * 
+	 * @return the slot number, or -1 if there are no beans in slots
+	 */
+	public int getMedianSlot() {
+		return getSlotPercentile(50);
+	}
+
+	/**
+	 * Drops a bean that reached the bottom into its slot.
+	 * 
+	 * @param bean the bean that landed
+	 */
+	private void addToSlot(Bean bean) {
+		int slot = bean.getXPos();
+		slots[slot].add(bean);
+		slotTree.add(slot, 1);
+		statistics.add(slot);
+	}
+
+	/**
+	 * Removes the earliest landed beans from a slot.
+	 * 
+	 * @param slot  the slot number
+	 * @param count the number of beans to remove
+	 */
+	private void removeFromSlot(int slot, int count) {
+		slots[slot].removeFirst(count);
+		slotTree.add(slot, -count);
+		statistics.remove(slot, count);
 	}
 
 	/**
 	 * A hard reset. Initializes the machine with the passed beans. The machine
-	 * starts with one bean at the top.
+	 * starts with one bean at the top, or up to getHopperWidth() beans.
 	 * 
 	 * @param beans array of beans to add to the machine
 	 */
 	public void reset(Bean[] beans) {
 		// TODO: Implement
-		waitingBeans = new LinkedList<Bean>();
-		inFlightBeans = new Bean[slotCount];
-		slots = new LinkedList[slotCount];
+		inFlightBeans = new Bean[slotCount * hopperWidth];
+		rowSizes = new int[slotCount];
+		topRow = 0;
+		occupiedRows = new long[(slotCount + 63) / 64];
+		inFlightCount = 0;
+		stepCount = 0;
+		slots = new SlotQueue[slotCount];
+		slotTree.clear();
+		statistics.clear();
 
 		//fills the inFlight array with nulls
 		for (int i = 0; i < inFlightBeans.length; i++) {
@@ -220,103 +354,361 @@ public class BeanCounterLogicImpl implements BeanCounterLogic {
 
 		//fills slots array with 0s
 		for (int i = 0; i < slotCount; i++) {
-			slots[i] = new LinkedList<Bean>();
+			slots[i] = new SlotQueue();
 		}
-		if (beans.length > 0) {
-			//initializes bean data structures
-			Bean[] beans2 = new Bean[beans.length];
-			for (int i = 0; i < beans.length; i++) {
-				beans2[i] = beans[i];
-			}
-			this.beans = beans2;
-			//adds all beans to the waiting queue
-			for (int i = 0; i < beans.length; i++) {
-				this.beans[i].reset();
-				waitingBeans.add(this.beans[i]);
-			}
+		//the copy of the beans doubles as the waiting ring buffer
+		this.beans = new Bean[beans.length];
+		System.arraycopy(beans, 0, this.beans, 0, beans.length);
+		for (int i = 0; i < beans.length; i++) {
+			this.beans[i].reset();
+		}
+		waitingHead = 0;
+		waitingCount = beans.length;
+
+		//sets the first beans in flight
+		insertBeansAtTop();
+	}
+
+	/**
+	 * Moves up to hopperWidth beans from the head of the waiting ring buffer
+	 * into the top row, which must be empty.
+	 */
+	private void insertBeansAtTop() {
+		int count = Math.min(hopperWidth, waitingCount);
+		if (count == 0) {
+			return;
+		}
+		int base = topRow * hopperWidth;
+		for (int i = 0; i < count; i++) {
+			inFlightBeans[base + i] = removeWaitingBean();
+		}
+		rowSizes[topRow] = count;
+		occupiedRows[topRow >> 6] |= 1L << topRow;
+		inFlightCount += count;
+	}
+
+	/**
+	 * Empties a row of inFlightBeans.
+	 * 
+	 * @param row the row of inFlightBeans
+	 */
+	private void clearRow(int row) {
+		int base = row * hopperWidth;
+		for (int i = 0; i < rowSizes[row]; i++) {
+			inFlightBeans[base + i] = null;
+		}
+		inFlightCount -= rowSizes[row];
+		rowSizes[row] = 0;
+		occupiedRows[row >> 6] &= ~(1L << row);
+	}
+
+	/**
+	 * Appends a bean to the tail of the waiting ring buffer. The ring buffer is
+	 * as large as the initial population and beans are never added to the
+	 * machine, so it never overflows.
+	 * 
+	 * @param bean the bean to add
+	 */
+	private void addWaitingBean(Bean bean) {
+		int tail = waitingHead + waitingCount;
+		if (tail >= beans.length) {
+			tail -= beans.length;
+		}
+		beans[tail] = bean;
+		waitingCount++;
+	}
 
-			//sets the first bean in flight
-			inFlightBeans[0] = waitingBeans.remove();
+	/**
+	 * Removes the bean at the head of the waiting ring buffer.
+	 * 
+	 * @return the next bean to drop
+	 */
+	private Bean removeWaitingBean() {
+		Bean bean = beans[waitingHead];
+		beans[waitingHead] = null;
+		waitingHead++;
+		if (waitingHead == beans.length) {
+			waitingHead = 0;
 		}
+		waitingCount--;
+		return bean;
 	}
 
 	/**
 	 * Repeats the experiment by scooping up all beans in the slots and all beans
 	 * in-flight and adding them into the pool of remaining beans. As in the
-	 * beginning, the machine starts with one bean at the top.
+	 * beginning, the machine starts with one bean at the top, or up to
+	 * getHopperWidth() beans.
 	 */
 	public void repeat() {
 		// TODO: Implement
 
-		//add all beans from slots to queue
+		//add all beans from slots to the ring buffer
 		for (int i = 0; i < slots.length; i++) {
-			while (slots[i].size() > 0) {
-				Bean bean = slots[i].pop();
+			for (int j = 0; j < slots[i].size(); j++) {
+				Bean bean = slots[i].get(j);
 				bean.reset();
-				waitingBeans.add(bean);
+				addWaitingBean(bean);
 			}
+			slots[i].clear();
 		}
-
-		//add all beans in flight to the queue
-		for (int i = 0; i < inFlightBeans.length; i++) {
-			if (inFlightBeans[i] != null) {
-				inFlightBeans[i].reset();
-				waitingBeans.add(inFlightBeans[i]);
-				inFlightBeans[i] = null;
+		slotTree.clear();
+		statistics.clear();
+
+		//add all beans in flight to the ring buffer
+		for (int yPos = 0; yPos < slotCount; yPos++) {
+			int row = getRowIndex(yPos);
+			int base = row * hopperWidth;
+			for (int i = 0; i < rowSizes[row]; i++) {
+				inFlightBeans[base + i].reset();
+				addWaitingBean(inFlightBeans[base + i]);
 			}
+			clearRow(row);
 		}
-		
+		stepCount = 0;
+
+		insertBeansAtTop();
 
-		if (!waitingBeans.isEmpty()) {
-			inFlightBeans[0] = waitingBeans.remove();
-		}
-		
 	}
 
 	/**
 	 * Advances the machine one step. All the in-flight beans fall down one step to
-	 * the next peg. A new bean is inserted into the top of the machine if there are
-	 * beans remaining.
+	 * the next peg. A new bean, or up to getHopperWidth() new beans, is inserted
+	 * into the top of the machine if there are beans remaining.
 	 * 
 	 * @return whether there has been any status change. If there is no change, that
 	 *         means the machine is finished.
 	 */
 	public boolean advanceStep() {
 		// TODO: Implement
-		boolean change = false;
-
-		//cycle through inFlight array and advance any beans in flight
-		for (int i = inFlightBeans.length - 1; i >= 0; i--) {
-			if (inFlightBeans[i] != null) {
-				Bean bean = inFlightBeans[i];
-				if (i == inFlightBeans.length - 1) {
-					slots[bean.getXPos()].add(bean);
-					inFlightBeans[i] = null;
-				} else {
-					bean.advanceStep();
-					inFlightBeans[i + 1] = bean;
-					inFlightBeans[i] = null;
+		if (isFinished()) {
+			return false;
+		}
+		step();
+		return true;
+	}
+
+	/**
+	 * Advances the machine up to n steps, stopping early if the machine finishes.
+	 * The steps are run in a single loop inside the machine.
+	 * 
+	 * @param n the maximum number of steps to advance
+	 * @return the number of steps that caused a status change
+	 */
+	public long advanceSteps(long n) {
+		long taken = 0;
+		while (taken < n && (inFlightCount > 0 || waitingCount > 0)) {
+			step();
+			taken++;
+		}
+		return taken;
+	}
+
+	/**
+	 * Advances the machine one step, assuming it is not finished.
+	 */
+	private void step() {
+		stepCount++;
+
+		//drop the beans in the last row into their slots
+		int bottomRow = getRowIndex(slotCount - 1);
+		if (rowSizes[bottomRow] > 0) {
+			int base = bottomRow * hopperWidth;
+			for (int i = 0; i < rowSizes[bottomRow]; i++) {
+				addToSlot(inFlightBeans[base + i]);
+			}
+			clearRow(bottomRow);
+		}
+
+		//bounce the rest of the beans in flight, bottom to top; rows above the
+		//bottom row wrap around to the end of inFlightBeans
+		if (inFlightCount > 0) {
+			bounceBeans(0, bottomRow);
+			bounceBeans(bottomRow + 1, slotCount);
+		}
+
+		//all beans fall one row by making the freed bottom row the new top row
+		topRow = bottomRow;
+
+		//get next waiting beans from the ring buffer
+		insertBeansAtTop();
+	}
+
+	/**
+	 * Bounces every in-flight bean stored in rows [from, to) of inFlightBeans,
+	 * from the highest row to the lowest. Empty rows are skipped a word at a time
+	 * using the occupiedRows bitmask, and the beans of a row are bounced as one
+	 * contiguous batch.
+	 * 
+	 * @param from the lowest row of inFlightBeans to bounce
+	 * @param to   one past the highest row of inFlightBeans to bounce
+	 */
+	private void bounceBeans(int from, int to) {
+		if (from >= to) {
+			return;
+		}
+		int firstWord = from >> 6;
+		int lastWord = (to - 1) >> 6;
+		for (int w = lastWord; w >= firstWord; w--) {
+			long word = occupiedRows[w];
+			if (w == lastWord) {
+				word &= -1L >>> (63 - ((to - 1) & 63));
+			}
+			if (w == firstWord) {
+				word &= -1L << (from & 63);
+			}
+			while (word != 0) {
+				int bit = 63 - Long.numberOfLeadingZeros(word);
+				int row = (w << 6) + bit;
+				int base = row * hopperWidth;
+				for (int i = base; i < base + rowSizes[row]; i++) {
+					bounce(inFlightBeans[i]);
 				}
-				change = true;
+				word &= ~(1L << bit);
 			}
 		}
+	}
+
+	/**
+	 * Returns whether the machine is finished, i.e. there are no beans in-flight
+	 * and no beans waiting. Runs in constant time.
+	 * 
+	 * @return whether the machine is finished
+	 */
+	public boolean isFinished() {
+		return inFlightCount == 0 && waitingCount == 0;
+	}
+
+	/**
+	 * Returns the number of steps that caused a status change since the last
+	 * reset or repeat.
+	 * 
+	 * @return the current step number
+	 */
+	public long getStepCount() {
+		return stepCount;
+	}
 
-		//get next waiting bean from queue
-		if (waitingBeans.size() > 0) {
-			inFlightBeans[0] = waitingBeans.remove();
-			change = true;
+	/**
+	 * Jumps directly to the state the machine would be in after the given step,
+	 * as if advanceStep() had been called until getStepCount() reached step or
+	 * the machine finished. Does nothing if the machine is already past step.
+	 *
+	 * <p>
+	 * Since the waiting bean j (counting from 0) enters the top row during the
+	 * (j/hopperWidth+1)th step from now, and every in-flight bean falls one row
+	 * per step, the row of every bean at the target step is known up front.
+	 * Beans that land by then are bounced all the way down and dropped into
+	 * their slots in the order they would have landed, and the rest are bounced
+	 * down to their target rows. Each bean makes the same bounce decisions with its own random
+	 * number generator as it would when stepping; only the order in which
+	 * different beans make them changes.
+	 * 
+	 * @param step the step number to jump to
+	 */
+	public void advanceTo(long step) {
+		long distance = Math.min(step, stepCount + getStepsToFinish()) - stepCount;
+		if (distance <= 0) {
+			return;
+		}
+		Bean[] targetRows = new Bean[slotCount * hopperWidth];
+		int[] targetSizes = new int[slotCount];
+
+		//beans already in flight, bottom to top
+		for (int yPos = slotCount - 1; yPos >= 0; yPos--) {
+			int row = getRowIndex(yPos);
+			int base = row * hopperWidth;
+			for (int i = 0; i < rowSizes[row]; i++) {
+				moveBean(inFlightBeans[base + i], yPos, yPos + distance, targetRows, targetSizes);
+			}
 		}
-		
 
+		//waiting beans that enter the machine by then, in the order they enter
+		long entering = Math.min(distance * hopperWidth, waitingCount);
+		for (long j = 0; j < entering; j++) {
+			moveBean(removeWaitingBean(), 0, distance - 1 - j / hopperWidth, targetRows, targetSizes);
+		}
 
-		return change;
+		//rebuild the in-flight rows with row 0 at index 0
+		topRow = 0;
+		inFlightCount = 0;
+		for (int i = 0; i < occupiedRows.length; i++) {
+			occupiedRows[i] = 0;
+		}
+		inFlightBeans = targetRows;
+		rowSizes = targetSizes;
+		for (int yPos = 0; yPos < slotCount; yPos++) {
+			if (targetSizes[yPos] > 0) {
+				occupiedRows[yPos >> 6] |= 1L << yPos;
+				inFlightCount += targetSizes[yPos];
+			}
+		}
+		stepCount += distance;
+	}
+
+	/**
+	 * Bounces a bean from row fromRow down to row toRow. If toRow is past the
+	 * last row, the bean lands in its slot, otherwise it is added to its row in
+	 * targetRows.
+	 * 
+	 * @param bean        the bean to move
+	 * @param fromRow     the row the bean is in now
+	 * @param toRow       the row the bean would be in after the jump
+	 * @param targetRows  the in-flight rows after the jump
+	 * @param targetSizes the number of beans in each of targetRows
+	 */
+	private void moveBean(Bean bean, int fromRow, long toRow, Bean[] targetRows, int[] targetSizes) {
+		int lastRow = (int) Math.min(toRow, slotCount - 1);
+		if (bias == null) {
+			bean.advanceSteps(lastRow - fromRow);
+		} else {
+			for (int row = fromRow; row < lastRow; row++) {
+				bounce(bean);
+			}
+		}
+		if (toRow >= slotCount) {
+			addToSlot(bean);
+		} else {
+			targetRows[lastRow * hopperWidth + targetSizes[lastRow]++] = bean;
+		}
+	}
+
+	/**
+	 * Moves a bean down one row, off the pegs of the board if they are biased.
+	 * 
+	 * @param bean the bean to move
+	 */
+	private void bounce(Bean bean) {
+		if (bias == null) {
+			bean.advanceStep();
+		} else {
+			EngineBean.of(bean).advanceStep(bias);
+		}
+	}
+
+	/**
+	 * Returns the number of steps left until the last bean lands.
+	 * 
+	 * @return the number of steps that will cause a status change from now on
+	 */
+	private long getStepsToFinish() {
+		if (waitingCount > 0) {
+			return ((long) waitingCount + hopperWidth - 1) / hopperWidth + slotCount;
+		}
+		for (int yPos = 0; yPos < slotCount; yPos++) {
+			if (rowSizes[getRowIndex(yPos)] > 0) {
+				return slotCount - yPos;
+			}
+		}
+		return 0;
 	}
 	
 	/**
 	 * Number of spaces in between numbers when printing out the state of the machine.
 	 * Make sure the number is odd (even numbers don't work as well).
 	 */
-	private int xspacing = 3;
+	private static final int DEFAULT_XSPACING = 3;
+	private int xspacing = DEFAULT_XSPACING;
 
 	/**
 	 * Calculates the number of spaces to indent for the given row of pegs.
@@ -335,11 +727,23 @@ public class BeanCounterLogicImpl implements BeanCounterLogic {
 	 * @return a string with bean counts for each slot
 	 */
 	public String getSlotString() {
+		return getSlotString(this, xspacing);
+	}
+
+	/**
+	 * Constructs a string representation of the bean count of all the slots of
+	 * any machine, in the layout of getSlotString().
+	 * 
+	 * @param logic    the machine
+	 * @param xspacing number of spaces in between numbers
+	 * @return a string with bean counts for each slot
+	 */
+	private static String getSlotString(BeanCounterLogic logic, int xspacing) {
 		StringBuilder bld = new StringBuilder();
 		Formatter fmt = new Formatter(bld);
 		String format = "%" + (xspacing + 1) + "d";
-		for (int i = 0; i < getSlotCount(); i++) {
-			fmt.format(format, getSlotBeanCount(i));
+		for (int i = 0; i < logic.getSlotCount(); i++) {
+			fmt.format(format, logic.getSlotBeanCount(i));
 		}
 		fmt.close();
 		return bld.toString();
@@ -348,6 +752,7 @@ public class BeanCounterLogicImpl implements BeanCounterLogic {
 	/**
 	 * Constructs a string representation of the entire machine. If a peg has a bean
 	 * above it, it is represented as a "1", otherwise it is represented as a "0".
+	 * With a hopper wider than 1, a peg shows the number of beans above it.
 	 * At the very bottom is attached the slots with the bean counts.
 	 * 
 	 * @return the string representation of the machine
@@ -359,15 +764,14 @@ public class BeanCounterLogicImpl implements BeanCounterLogic {
 		StringBuilder bld = new StringBuilder();
 		Formatter fmt = new Formatter(bld);
 		for (int yPos = 0; yPos < getSlotCount(); yPos++) {
-			int xBeanPos = getInFlightBeanXPos(yPos);
+			int[] pegBeans = new int[yPos + 1];
+			for (int i = 0; i < getInFlightBeanCount(yPos); i++) {
+				pegBeans[getInFlightBeanXPos(yPos, i)]++;
+			}
 			for (int xPos = 0; xPos <= yPos; xPos++) {
 				int spacing = (xPos == 0) ? getIndent(yPos) : (xspacing + 1);
 				String format = "%" + spacing + "d";
-				if (xPos == xBeanPos) {
-					fmt.format(format, 1);
-				} else {
-					fmt.format(format, 0);
-				}
+				fmt.format(format, pegBeans[xPos]);
 			}
 			fmt.format("\n");
 		}
@@ -379,11 +783,62 @@ public class BeanCounterLogicImpl implements BeanCounterLogic {
 	 * Prints usage information.
 	 */
 	public static void showUsage() {
-		System.out.println("Usage: java BeanCounterLogic slot_count bean_count <luck | skill> [debug]");
+		System.out.println("Usage: java BeanCounterLogic slot_count bean_count <luck | skill> [debug | sparse]");
 		System.out.println("Example: java BeanCounterLogic 10 400 luck");
 		System.out.println("Example: java BeanCounterLogic 20 1000 skill debug");
+		System.out.println("Example: java BeanCounterLogic 1000000 10000 luck sparse");
+		System.out.println("Bean counts beyond " + Integer.MAX_VALUE + " are supported without debug.");
+		System.out.println("With sparse, only the occupied slots are printed, as slot:count.");
+	}
+
+	/**
+	 * Runs an experiment with more beans than fit in an array on a
+	 * BeanCounterLogicHistogram, which only keeps counts, and prints the slot
+	 * bean counts. Luck mode beans are taken from an endless source and the
+	 * run is finished with fastForward(); skill mode beans are drawn as a
+	 * SkillPopulation.
+	 * 
+	 * @param factory   the factory of the experiment's generators
+	 * @param slotCount the number of slots in the machine
+	 * @param beanCount the number of beans
+	 * @param luck      whether the beans are in luck mode
+	 * @param seed      the seed of the experiment
+	 */
+	private static void runCounts(BeanFactory factory, int slotCount, long beanCount, boolean luck, long seed) {
+		Random rand = factory.createRandom(seed);
+		BeanCounterLogicHistogram logic = new BeanCounterLogicHistogram(slotCount, rand);
+		if (luck) {
+			logic.reset(Stream.generate(() -> (Bean) new LazyBean(true, rand, 0)).iterator(), beanCount);
+		} else {
+			logic.reset(SkillPopulation.random(slotCount, beanCount, rand));
+		}
+		logic.fastForward();
+		System.out.println("Slot bean counts:");
+		System.out.println(logic.getSlotString());
 	}
 	
+	/**
+	 * Runs an experiment on a board too tall for this class on a
+	 * BeanCounterLogicSparse, which only stores occupied rows and slots, and
+	 * prints the slot bean counts. Unless sparse output is asked for, every
+	 * slot is printed in the layout of getSlotString(), as for smaller boards.
+	 * 
+	 * @param factory      the factory of the beans
+	 * @param slotCount    the number of slots in the machine
+	 * @param beanCount    the number of beans
+	 * @param luck         whether the beans are in luck mode
+	 * @param seed         the seed of the experiment
+	 * @param sparseOutput whether to print only the occupied slots, as slot:count
+	 */
+	private static void runTallBoard(BeanFactory factory, int slotCount, int beanCount, boolean luck, long seed,
+			boolean sparseOutput) {
+		BeanCounterLogicSparse logic = new BeanCounterLogicSparse(slotCount);
+		logic.reset(factory.createLazyBeans(slotCount, luck, beanCount, seed));
+		logic.runToEnd();
+		System.out.println("Slot bean counts:");
+		System.out.println(sparseOutput ? logic.getSlotString() : getSlotString(logic, DEFAULT_XSPACING));
+	}
+
 	/**
 	 * Auxiliary main method. Runs the machine in text mode with no bells and
 	 * whistles. It simply shows the slot bean count at the end.
@@ -392,9 +847,10 @@ public class BeanCounterLogicImpl implements BeanCounterLogic {
 	 */
 	public static void main(String[] args) {
 		boolean debug;
+		boolean sparse;
 		boolean luck;
 		int slotCount = 0;
-		int beanCount = 0;
+		long beanCount = 0;
 
 		if (args.length != 3 && args.length != 4) {
 			showUsage();
@@ -403,7 +859,7 @@ public class BeanCounterLogicImpl implements BeanCounterLogic {
 
 		try {
 			slotCount = Integer.parseInt(args[0]);
-			beanCount = Integer.parseInt(args[1]);
+			beanCount = Long.parseLong(args[1]);
 		} catch (NumberFormatException ne) {
 			showUsage();
 			return;
@@ -427,14 +883,33 @@ public class BeanCounterLogicImpl implements BeanCounterLogic {
 		} else {
 			debug = false;
 		}
+		sparse = args.length == 4 && args[3].equals("sparse");
+
+		long seed = new SplittableRandom().nextLong();
+		// The beans of a chunk share one xoroshiro generator, so there is neither a
+		// generator per bean nor an atomic seed update per bounce
+		BeanFactory factory = new BeanFactory(RandomType.XOROSHIRO, true);
+		if (beanCount > Integer.MAX_VALUE) {
+			if (debug) {
+				showUsage();
+				return;
+			}
+			runCounts(factory, slotCount, beanCount, luck, seed);
+			return;
+		}
+
+		if (sparse || !debug && slotCount >= BeanCounterLogicSparse.TALL_BOARD_SLOT_COUNT) {
+			runTallBoard(factory, slotCount, (int) beanCount, luck, seed, sparse);
+			return;
+		}
 
 		// Create the internal logic
 		BeanCounterLogicImpl logic = new BeanCounterLogicImpl(slotCount);
-		// Create the beans (in luck mode)
-		BeanImpl[] beans = new BeanImpl[beanCount];
-		for (int i = 0; i < beanCount; i++) {
-			beans[i] = new BeanImpl(slotCount, luck, new Random());
-		}
+		// Create the beans; without debug output nobody looks at in-flight beans,
+		// so lazy beans only make their bounce decisions when they land, and get
+		// their skill levels from a table rather than a Gaussian each
+		Bean[] beans = debug ? factory.createBeans(slotCount, luck, (int) beanCount, seed)
+				: factory.createLazyBeans(slotCount, luck, (int) beanCount, seed);
 		// Initialize the logic with the beans
 		logic.reset(beans);
 
@@ -443,13 +918,12 @@ public class BeanCounterLogicImpl implements BeanCounterLogic {
 		}
 
 		// Perform the experiment
-		while (true) {
-			if (!logic.advanceStep()) {
-				break;
-			}
-			if (debug) {
+		if (debug) {
+			while (logic.advanceStep()) {
 				System.out.println(logic.toString());
 			}
+		} else {
+			logic.runToEnd();
 		}
 		// display experimental results
 		System.out.println("Slot bean counts:");
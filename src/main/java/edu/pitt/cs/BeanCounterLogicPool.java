@@ -0,0 +1,381 @@
+package edu.pitt.cs;
+
+import java.util.Formatter;
+import java.util.stream.IntStream;
+
+/**
+ * BeanCounterLogicPool: A BeanCounterLogic engine that keeps its beans in a
+ * BeanPool and moves them around by index. In-flight rows hold bean indices
+ * rather than references, and slots hold counts like in
+ * BeanCounterLogicHistogram, so the whole machine is made of primitive arrays.
+ *
+ * <p>
+ * The waiting beans are always the contiguous index range [waitingHead,
+ * waitingEnd) of the pool. That is possible because luck beans are
+ * interchangeable and a skill bean in slot S has skill level S, so repeat()
+ * can simply rewrite the first N beans of the pool in bulk.
+ *
+ * <p>
+ * Existing callers can keep passing a Bean[] to reset(); it is converted with
+ * BeanPool.fromBeans(). Luck beans passed that way keep bouncing with their
+ * own random number generators, so seeded runs can be reproduced.
+ *
+ * <p>
+ * runToEnd() resolves the whole remaining path of every bean at once with
+ * BeanPool.advanceSteps(), which in luck mode is a single popcount over the
+ * pool's random bits for up to 64 rows. With a counter-based pool the waiting
+ * beans are independent of each other, so they are resolved in parallel.
+ */
+
+public class BeanCounterLogicPool implements BeanCounterLogic {
+	private static final int NO_BEAN = -1;
+
+	private int slotCount;
+	private PegBias bias;			// Pegs of the board, or null for a fair board
+	private BeanPool pool;
+	private int waitingHead;		// Index in pool of the next bean to drop
+	private int waitingEnd;			// One past the index of the last waiting bean
+	private int[] inFlightBeans;	// Index in pool of the bean in each row, or NO_BEAN
+	private int[] slotCounts;
+	private SlotStatistics statistics;	// Running statistics of the beans in slots
+
+	/**
+	 * Constructor - creates the bean counter logic object that implements the core
+	 * logic with the provided number of slots.
+	 *
+	 * @param slotCount the number of slots in the machine
+	 */
+	BeanCounterLogicPool(int slotCount) {
+		this(slotCount, null);
+	}
+
+	/**
+	 * Constructor - creates the bean counter logic object for a board with
+	 * biased pegs. Luck mode beans are bounced with
+	 * BeanPool.advanceStep(int, int, PegBias).
+	 *
+	 * @param slotCount the number of slots in the machine
+	 * @param bias      the pegs of the board, or null for a fair board
+	 */
+	BeanCounterLogicPool(int slotCount, PegBias bias) {
+		if (bias != null) {
+			bias.checkSlotCount(slotCount);
+		}
+		this.slotCount = slotCount;
+		this.bias = bias;
+		this.pool = BeanPool.fromBeans(new Bean[0], slotCount);
+		this.inFlightBeans = new int[slotCount];
+		this.slotCounts = new int[slotCount];
+		this.statistics = new SlotStatistics(slotCount);
+		clear();
+	}
+
+	/**
+	 * Returns the number of slots the machine was initialized with.
+	 *
+	 * @return number of slots
+	 */
+	public int getSlotCount() {
+		return slotCount;
+	}
+
+	/**
+	 * Returns the number of beans remaining that are waiting to get inserted.
+	 *
+	 * @return number of beans remaining
+	 */
+	public int getRemainingBeanCount() {
+		return waitingEnd - waitingHead;
+	}
+
+	/**
+	 * Returns the x-coordinate for the in-flight bean at the provided y-coordinate.
+	 *
+	 * @param yPos the y-coordinate in which to look for the in-flight bean
+	 * @return the x-coordinate of the in-flight bean; if no bean in y-coordinate, return NO_BEAN_IN_YPOS
+	 */
+	public int getInFlightBeanXPos(int yPos) {
+		int bean = inFlightBeans[yPos];
+		return bean == NO_BEAN ? NO_BEAN_IN_YPOS : pool.getXPos(bean);
+	}
+
+	/**
+	 * Returns the number of beans in the ith slot.
+	 *
+	 * @param i index of slot
+	 * @return number of beans in slot
+	 */
+	public int getSlotBeanCount(int i) {
+		return slotCounts[i];
+	}
+
+	/**
+	 * Calculates the average slot number of all the beans in slots.
+	 *
+	 * @return Average slot number of all the beans in slots.
+	 */
+	public double getAverageSlotBeanCount() {
+		return statistics.getMean();
+	}
+
+	/**
+	 * Returns the statistics of the beans in slots. They are kept up to date as
+	 * beans land and are removed, so the returned object is a live view.
+	 *
+	 * @return statistics of the beans in slots
+	 */
+	public SlotStatistics getSlotStatistics() {
+		return statistics;
+	}
+
+	/**
+	 * Returns the total number of beans currently in slots.
+	 *
+	 * @return number of beans in slots
+	 */
+	private int getInSlotsBeanCount() {
+		return (int) statistics.getCount();
+	}
+
+	/**
+	 * Removes the lower half of all beans currently in slots, keeping only the
+	 * upper half. If there are an odd number of beans, remove (N-1)/2 beans, where
+	 * N is the number of beans. So, if there are 3 beans, 1 will be removed and 2
+	 * will be remaining.
+	 */
+	public void upperHalf() {
+		int beansToRemove = getInSlotsBeanCount() / 2;
+		for (int i = 0; i < slotCount && beansToRemove > 0; i++) {
+			int removed = Math.min(slotCounts[i], beansToRemove);
+			slotCounts[i] -= removed;
+			statistics.remove(i, removed);
+			beansToRemove -= removed;
+		}
+	}
+
+	/**
+	 * Removes the upper half of all beans currently in slots, keeping only the
+	 * lower half.  If there are an odd number of beans, remove (N-1)/2 beans, where
+	 * N is the number of beans. So, if there are 3 beans, 1 will be removed and 2
+	 * will be remaining.
+	 */
+	public void lowerHalf() {
+		int beansToRemove = getInSlotsBeanCount() / 2;
+		for (int i = slotCount - 1; i >= 0 && beansToRemove > 0; i--) {
+			int removed = Math.min(slotCounts[i], beansToRemove);
+			slotCounts[i] -= removed;
+			statistics.remove(i, removed);
+			beansToRemove -= removed;
+		}
+	}
+
+	/**
+	 * A hard reset. Initializes the machine with the passed beans. The machine
+	 * starts with one bean at the top. Luck mode beans are kept as objects in
+	 * the pool so that they bounce with their own generators, which means this
+	 * only saves memory in skill mode; pass a pool created with
+	 * BeanPool.shared() or BeanPool.counterBased() to get the 6 bytes per bean
+	 * of the pool in luck mode.
+	 *
+	 * @param beans array of beans to add to the machine
+	 * @throws IllegalArgumentException if the beans are not EngineBeans
+	 */
+	public void reset(Bean[] beans) {
+		reset(BeanPool.fromBeans(beans, slotCount));
+	}
+
+	/**
+	 * A hard reset. Initializes the machine with the passed pool of beans. The
+	 * machine starts with one bean at the top. The pool is owned by the machine
+	 * from now on: repeat() rewrites the skill levels of its beans.
+	 *
+	 * @param pool the beans to add to the machine
+	 * @throws IllegalArgumentException if the pool was created for a different
+	 *                                  number of slots
+	 */
+	public void reset(BeanPool pool) {
+		if (pool.getSlotCount() != slotCount) {
+			throw new IllegalArgumentException("A pool for " + pool.getSlotCount()
+					+ " slots does not fit a machine with " + slotCount + " slots");
+		}
+		this.pool = pool;
+		refill(pool.size());
+	}
+
+	/**
+	 * Repeats the experiment by scooping up all beans in the slots and all beans
+	 * in-flight and adding them into the pool of remaining beans. As in the
+	 * beginning, the machine starts with one bean at the top.
+	 */
+	public void repeat() {
+		int total = getInSlotsBeanCount() + getRemainingBeanCount();
+		for (int i = 0; i < slotCount; i++) {
+			if (inFlightBeans[i] != NO_BEAN) {
+				total++;
+			}
+		}
+		if (!pool.isLuck()) {
+			// Lay out the skill levels of all beans in the machine over [0, total)
+			int[] counts = slotCounts.clone();
+			for (int i = 0; i < slotCount; i++) {
+				if (inFlightBeans[i] != NO_BEAN) {
+					counts[pool.getSkillLevel(inFlightBeans[i])]++;
+				}
+			}
+			for (int i = waitingHead; i < waitingEnd; i++) {
+				counts[pool.getSkillLevel(i)]++;
+			}
+			int bean = 0;
+			for (int skill = 0; skill < slotCount; skill++) {
+				for (int j = 0; j < counts[skill]; j++) {
+					pool.setSkillLevel(bean++, skill);
+				}
+			}
+		}
+		pool.nextRun();
+		refill(total);
+	}
+
+	/**
+	 * Empties the machine and makes the first beanCount beans of the pool the
+	 * waiting beans, then puts the first bean at the top.
+	 *
+	 * @param beanCount number of beans to put into the waiting pool
+	 */
+	private void refill(int beanCount) {
+		clear();
+		pool.reset(0, beanCount);
+		waitingHead = 0;
+		waitingEnd = beanCount;
+		if (waitingHead < waitingEnd) {
+			inFlightBeans[0] = waitingHead++;
+		}
+	}
+
+	/**
+	 * Empties the slots and removes all in-flight beans.
+	 */
+	private void clear() {
+		for (int i = 0; i < slotCount; i++) {
+			inFlightBeans[i] = NO_BEAN;
+			slotCounts[i] = 0;
+		}
+		statistics.clear();
+	}
+
+	/**
+	 * Advances the machine one step. All the in-flight beans fall down one step to
+	 * the next peg. A new bean is inserted into the top of the machine if there are
+	 * beans remaining.
+	 *
+	 * @return whether there has been any status change. If there is no change, that
+	 *         means the machine is finished.
+	 */
+	public boolean advanceStep() {
+		boolean change = false;
+
+		int landing = inFlightBeans[slotCount - 1];
+		if (landing != NO_BEAN) {
+			addToSlot(pool.getXPos(landing), 1);
+			inFlightBeans[slotCount - 1] = NO_BEAN;
+			change = true;
+		}
+
+		for (int i = slotCount - 2; i >= 0; i--) {
+			int bean = inFlightBeans[i];
+			if (bean != NO_BEAN) {
+				pool.advanceStep(bean, i, bias);
+				inFlightBeans[i + 1] = bean;
+				inFlightBeans[i] = NO_BEAN;
+				change = true;
+			}
+		}
+
+		if (waitingHead < waitingEnd) {
+			inFlightBeans[0] = waitingHead++;
+			change = true;
+		}
+		return change;
+	}
+
+	/**
+	 * Advances the machine until it is finished. Instead of stepping, every
+	 * in-flight and waiting bean makes all of its remaining bounces at once and
+	 * is dropped into its slot, bottom row first, just like when stepping.
+	 *
+	 * @return the number of steps that would have caused a status change
+	 */
+	public long runToEnd() {
+		long steps = 0;
+		for (int yPos = slotCount - 1; yPos >= 0; yPos--) {
+			int bean = inFlightBeans[yPos];
+			if (bean != NO_BEAN) {
+				pool.advanceSteps(bean, yPos, slotCount - 1 - yPos, bias);
+				addToSlot(pool.getXPos(bean), 1);
+				inFlightBeans[yPos] = NO_BEAN;
+				steps = slotCount - yPos;
+			}
+		}
+		if (waitingHead < waitingEnd) {
+			steps = (long) (waitingEnd - waitingHead) + slotCount;
+		}
+		if (pool.isCounterBased()) {
+			// Paths do not depend on the order beans are advanced in, so split them
+			// over all cores; adding up the partial histograms gives the same result
+			int[] landed = IntStream.range(waitingHead, waitingEnd).parallel().collect(
+					() -> new int[slotCount],
+					(counts, bean) -> {
+						pool.advanceSteps(bean, 0, slotCount - 1, bias);
+						counts[pool.getXPos(bean)]++;
+					},
+					BeanCounterLogicPool::addCounts);
+			for (int i = 0; i < slotCount; i++) {
+				addToSlot(i, landed[i]);
+			}
+			waitingHead = waitingEnd;
+		}
+		for (; waitingHead < waitingEnd; waitingHead++) {
+			pool.advanceSteps(waitingHead, 0, slotCount - 1, bias);
+			addToSlot(pool.getXPos(waitingHead), 1);
+		}
+		return steps;
+	}
+
+	/**
+	 * Adds landed beans to a slot.
+	 *
+	 * @param slot  the slot number
+	 * @param beans the number of beans that landed
+	 */
+	private void addToSlot(int slot, int beans) {
+		slotCounts[slot] += beans;
+		statistics.add(slot, beans);
+	}
+
+	/**
+	 * Adds the slot counts in from to the slot counts in to.
+	 *
+	 * @param to   the slot counts to add to
+	 * @param from the slot counts to add
+	 */
+	private static void addCounts(int[] to, int[] from) {
+		for (int i = 0; i < to.length; i++) {
+			to[i] += from[i];
+		}
+	}
+
+	/**
+	 * Constructs a string representation of the bean count of all the slots.
+	 *
+	 * @return a string with bean counts for each slot
+	 */
+	public String getSlotString() {
+		StringBuilder bld = new StringBuilder();
+		Formatter fmt = new Formatter(bld);
+		for (int i = 0; i < slotCount; i++) {
+			fmt.format("%4d", slotCounts[i]);
+		}
+		fmt.close();
+		return bld.toString();
+	}
+}
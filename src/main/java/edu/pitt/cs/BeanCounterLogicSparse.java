@@ -0,0 +1,403 @@
+package edu.pitt.cs;
+
+import java.util.Formatter;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * BeanCounterLogicSparse: A BeanCounterLogic for very tall boards, with a
+ * million rows or more. BeanCounterLogicImpl allocates every row and every
+ * slot up front and moves every in-flight bean on every step, which is fine
+ * for a board that fits on the screen but not for one with 10^6 rows. This
+ * engine only stores what is occupied, so memory grows with the number of
+ * beans and not with the number of slots.
+ *
+ * <p>
+ * One bean enters the machine per step, so the in-flight beans are always the
+ * beans that entered during the last slotCount steps, and the bean that
+ * entered at step e is at row stepCount - e. The waiting ring buffer therefore
+ * holds both: the first inFlightCount beans from its head are in flight,
+ * oldest first, and the rest are waiting. Beans are not moved when the
+ * machine steps; a bean is moved down to its row with Bean.advanceSteps() only
+ * when its position is asked for or when it lands. As with
+ * BeanCounterLogicImpl.advanceTo(), each bean makes the same bounce decisions
+ * with its own random number generator as it would when stepping; only the
+ * order in which different beans make them changes.
+ *
+ * <p>
+ * Slots are kept in a sorted map from slot number to the beans in it, holding
+ * only the slots with beans. Beans on a tall board land within a few standard
+ * deviations, about sqrt(slotCount) / 2 slots, of the middle.
+ */
+
+public class BeanCounterLogicSparse implements BeanCounterLogic {
+	// Slot count from which the command line runs use this engine
+	static final int TALL_BOARD_SLOT_COUNT = 4096;
+
+	private int slotCount;
+	private PegBias bias;			// Pegs of the board, or null for a fair board
+	private Bean[] beans;			// Ring buffer of in-flight beans, oldest first, then waiting beans
+	private int head;				// Index in beans of the oldest in-flight bean
+	private int inFlightCount;
+	private int waitingCount;
+	private long stepCount;			// Steps taken since the last reset or repeat
+	private long oldestEntryStep;	// Step at which the bean at head entered the machine
+	private TreeMap<Integer, SlotQueue> slots;	// Occupied slots only
+	private SlotStatistics statistics;			// Running statistics of the beans in slots
+
+	/**
+	 * Constructor - creates the bean counter logic object that implements the core
+	 * logic with the provided number of slots.
+	 *
+	 * @param slotCount the number of slots in the machine
+	 */
+	BeanCounterLogicSparse(int slotCount) {
+		this(slotCount, null);
+	}
+
+	/**
+	 * Constructor - creates the bean counter logic object for a board with
+	 * biased pegs. Beans then catch up one row at a time with
+	 * EngineBean.advanceStep(PegBias), so they must be EngineBeans.
+	 *
+	 * @param slotCount the number of slots in the machine
+	 * @param bias      the pegs of the board, or null for a fair board
+	 */
+	BeanCounterLogicSparse(int slotCount, PegBias bias) {
+		if (bias != null) {
+			bias.checkSlotCount(slotCount);
+		}
+		this.slotCount = slotCount;
+		this.bias = bias;
+		this.beans = new Bean[0];
+		this.slots = new TreeMap<>();
+		this.statistics = new SlotStatistics(slotCount);
+	}
+
+	/**
+	 * Returns the number of slots the machine was initialized with.
+	 *
+	 * @return number of slots
+	 */
+	public int getSlotCount() {
+		return slotCount;
+	}
+
+	/**
+	 * Returns the number of beans remaining that are waiting to get inserted.
+	 *
+	 * @return number of beans remaining
+	 */
+	public int getRemainingBeanCount() {
+		return waitingCount;
+	}
+
+	/**
+	 * Returns the x-coordinate for the in-flight bean at the provided y-coordinate.
+	 * The bean is moved down to that row first.
+	 *
+	 * @param yPos the y-coordinate in which to look for the in-flight bean
+	 * @return the x-coordinate of the in-flight bean; if no bean in y-coordinate, return NO_BEAN_IN_YPOS
+	 */
+	public int getInFlightBeanXPos(int yPos) {
+		if (yPos < 0 || yPos >= slotCount) {
+			return NO_BEAN_IN_YPOS;
+		}
+		long index = stepCount - yPos - oldestEntryStep;
+		if (index < 0 || index >= inFlightCount) {
+			return NO_BEAN_IN_YPOS;
+		}
+		Bean bean = getBean((int) index);
+		catchUp(bean, yPos);
+		return bean.getXPos();
+	}
+
+	/**
+	 * Returns the ith bean of the ring buffer counting from head.
+	 *
+	 * @param i position of the bean from head
+	 * @return the bean
+	 */
+	private Bean getBean(int i) {
+		int index = head + i;
+		return beans[index >= beans.length ? index - beans.length : index];
+	}
+
+	/**
+	 * Moves a bean down to the given row.
+	 *
+	 * @param bean the bean to move
+	 * @param yPos the row the bean is in by now
+	 */
+	private void catchUp(Bean bean, int yPos) {
+		int rows = yPos - bean.getYPos();
+		if (bias != null) {
+			for (int i = 0; i < rows; i++) {
+				EngineBean.of(bean).advanceStep(bias);
+			}
+		} else if (rows > 0) {
+			bean.advanceSteps(rows);
+		}
+	}
+
+	/**
+	 * Returns the number of beans in the ith slot.
+	 *
+	 * @param i index of slot
+	 * @return number of beans in slot
+	 */
+	public int getSlotBeanCount(int i) {
+		SlotQueue slot = slots.get(i);
+		return slot == null ? 0 : slot.size();
+	}
+
+	/**
+	 * Returns the number of slots with beans in them.
+	 *
+	 * @return number of occupied slots
+	 */
+	public int getOccupiedSlotCount() {
+		return slots.size();
+	}
+
+	/**
+	 * Calculates the average slot number of all the beans in slots.
+	 *
+	 * @return Average slot number of all the beans in slots.
+	 */
+	public double getAverageSlotBeanCount() {
+		return statistics.getMean();
+	}
+
+	/**
+	 * Returns the statistics of the beans in slots. They are kept up to date as
+	 * beans land and are removed, so the returned object is a live view.
+	 *
+	 * @return statistics of the beans in slots
+	 */
+	public SlotStatistics getSlotStatistics() {
+		return statistics;
+	}
+
+	/**
+	 * Removes the lower half of all beans currently in slots, keeping only the
+	 * upper half. If there are an odd number of beans, remove (N-1)/2 beans, where
+	 * N is the number of beans.
+	 */
+	public void upperHalf() {
+		long toRemove = statistics.getCount() / 2;
+		while (toRemove > 0) {
+			int slot = slots.firstKey();
+			int removed = (int) Math.min(toRemove, slots.get(slot).size());
+			removeFromSlot(slot, removed);
+			toRemove -= removed;
+		}
+	}
+
+	/**
+	 * Removes the upper half of all beans currently in slots, keeping only the
+	 * lower half. If there are an odd number of beans, remove (N-1)/2 beans, where
+	 * N is the number of beans.
+	 */
+	public void lowerHalf() {
+		long toRemove = statistics.getCount() / 2;
+		while (toRemove > 0) {
+			int slot = slots.lastKey();
+			int removed = (int) Math.min(toRemove, slots.get(slot).size());
+			removeFromSlot(slot, removed);
+			toRemove -= removed;
+		}
+	}
+
+	/**
+	 * Drops a bean that reached the bottom into its slot.
+	 *
+	 * @param bean the bean that landed
+	 */
+	private void addToSlot(Bean bean) {
+		int slot = bean.getXPos();
+		SlotQueue queue = slots.get(slot);
+		if (queue == null) {
+			queue = new SlotQueue();
+			slots.put(slot, queue);
+		}
+		queue.add(bean);
+		statistics.add(slot);
+	}
+
+	/**
+	 * Removes the earliest landed beans from a slot, and the slot itself once it
+	 * is empty.
+	 *
+	 * @param slot  the slot number
+	 * @param count the number of beans to remove
+	 */
+	private void removeFromSlot(int slot, int count) {
+		SlotQueue queue = slots.get(slot);
+		queue.removeFirst(count);
+		if (queue.size() == 0) {
+			slots.remove(slot);
+		}
+		statistics.remove(slot, count);
+	}
+
+	/**
+	 * A hard reset. Initializes the machine with the passed beans. The machine
+	 * starts with one bean at the top.
+	 *
+	 * @param beans array of beans to add to the machine
+	 */
+	public void reset(Bean[] beans) {
+		this.beans = new Bean[beans.length];
+		System.arraycopy(beans, 0, this.beans, 0, beans.length);
+		for (int i = 0; i < beans.length; i++) {
+			this.beans[i].reset();
+		}
+		slots.clear();
+		statistics.clear();
+		start(beans.length);
+	}
+
+	/**
+	 * Starts a run with the given number of beans at the front of the ring
+	 * buffer, all waiting, and puts the first one in the top row.
+	 *
+	 * @param beanCount the number of beans in the machine
+	 */
+	private void start(int beanCount) {
+		head = 0;
+		inFlightCount = 0;
+		waitingCount = beanCount;
+		stepCount = 0;
+		oldestEntryStep = 0;
+		if (waitingCount > 0) {
+			inFlightCount++;
+			waitingCount--;
+		}
+	}
+
+	/**
+	 * Repeats the experiment by scooping up all beans in the slots and all beans
+	 * in-flight and adding them into the pool of remaining beans, in the same
+	 * order as BeanCounterLogicImpl: the waiting beans first, then the beans in
+	 * the slots, then the in-flight beans from the top row down. As in the
+	 * beginning, the machine starts with one bean at the top.
+	 */
+	public void repeat() {
+		Bean[] pool = new Bean[beans.length];
+		int count = 0;
+		for (int i = 0; i < waitingCount; i++) {
+			pool[count++] = getBean(inFlightCount + i);
+		}
+		for (Map.Entry<Integer, SlotQueue> entry : slots.entrySet()) {
+			SlotQueue queue = entry.getValue();
+			for (int j = 0; j < queue.size(); j++) {
+				pool[count++] = queue.get(j);
+			}
+		}
+		for (int i = inFlightCount - 1; i >= 0; i--) {
+			pool[count++] = getBean(i);
+		}
+		for (int i = 0; i < count; i++) {
+			pool[i].reset();
+		}
+		beans = pool;
+		slots.clear();
+		statistics.clear();
+		start(count);
+	}
+
+	/**
+	 * Advances the machine one step. All the in-flight beans fall down one step to
+	 * the next peg. A new bean is inserted into the top of the machine if there are
+	 * beans remaining.
+	 *
+	 * @return whether there has been any status change. If there is no change, that
+	 *         means the machine is finished.
+	 */
+	public boolean advanceStep() {
+		if (isFinished()) {
+			return false;
+		}
+		stepCount++;
+
+		//the oldest bean lands once it has been in the machine for slotCount steps
+		if (inFlightCount > 0 && stepCount - oldestEntryStep == slotCount) {
+			Bean landing = beans[head];
+			catchUp(landing, slotCount - 1);
+			addToSlot(landing);
+			beans[head] = null;
+			head = head + 1 == beans.length ? 0 : head + 1;
+			inFlightCount--;
+			oldestEntryStep++;
+		}
+
+		//the next waiting bean enters at the top
+		if (waitingCount > 0) {
+			if (inFlightCount == 0) {
+				oldestEntryStep = stepCount;
+			}
+			inFlightCount++;
+			waitingCount--;
+		}
+		return true;
+	}
+
+	/**
+	 * Returns whether the machine is finished, i.e. there are no beans in-flight
+	 * and no beans waiting. Runs in constant time.
+	 *
+	 * @return whether the machine is finished
+	 */
+	public boolean isFinished() {
+		return inFlightCount == 0 && waitingCount == 0;
+	}
+
+	/**
+	 * Returns the number of steps that caused a status change since the last
+	 * reset or repeat.
+	 *
+	 * @return the current step number
+	 */
+	public long getStepCount() {
+		return stepCount;
+	}
+
+	/**
+	 * Constructs a string representation of the bean count of the occupied
+	 * slots, as slot:count pairs in slot order.
+	 *
+	 * @return a string with bean counts for each occupied slot
+	 */
+	public String getSlotString() {
+		StringBuilder bld = new StringBuilder();
+		for (Map.Entry<Integer, SlotQueue> entry : slots.entrySet()) {
+			if (bld.length() > 0) {
+				bld.append(' ');
+			}
+			bld.append(entry.getKey()).append(':').append(entry.getValue().size());
+		}
+		return bld.toString();
+	}
+
+	/**
+	 * Constructs a string representation of the machine. Drawing every peg of a
+	 * tall board is out of the question, so this lists the occupied rows, as
+	 * (x, y) positions from the top row down, followed by the occupied slots.
+	 *
+	 * @return the string representation of the machine
+	 */
+	@edu.umd.cs.findbugs.annotations.SuppressFBWarnings(
+		    value = "VA_FORMAT_STRING_USES_NEWLINE",
+		    justification = "I know we should be using %n instead of \n, but JPF for some reason does not like %n")
+	public String toString() {
+		StringBuilder bld = new StringBuilder();
+		Formatter fmt = new Formatter(bld);
+		for (int i = inFlightCount - 1; i >= 0; i--) {
+			int yPos = (int) (stepCount - oldestEntryStep - i);
+			fmt.format("(%d, %d)\n", getInFlightBeanXPos(yPos), yPos);
+		}
+		fmt.close();
+		return bld.toString() + getSlotString();
+	}
+}
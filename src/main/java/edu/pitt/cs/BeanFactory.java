@@ -0,0 +1,174 @@
+package edu.pitt.cs;
+
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * BeanFactory: Creates populations of beans on all cores. The population is
+ * cut into chunks of CHUNK_SIZE beans, and each chunk gets its own generator
+ * of the factory's RandomType seeded from the population seed and the chunk
+ * number. A population therefore only depends on its seed, not on how many
+ * threads built it or in which order the chunks were done.
+ *
+ * <p>
+ * By default, every bean gets its own generator seeded from its chunk's
+ * generator. A factory created with sharedRandom set instead lets the beans of
+ * a chunk share the chunk's generator.
+ */
+
+public class BeanFactory {
+	static final int CHUNK_SIZE = 1 << 16;
+
+	private static final long CHUNK_GAMMA = 0x9e3779b97f4a7c15L;
+
+	private RandomType randomType;
+	private boolean sharedRandom;
+
+	/**
+	 * Constructor - creates a factory that gives every bean its own
+	 * java.util.Random.
+	 */
+	public BeanFactory() {
+		this(RandomType.JAVA_UTIL, false);
+	}
+
+	/**
+	 * Constructor - creates a factory with the given kind of generators.
+	 *
+	 * @param randomType   the type of the generators of chunks and beans
+	 * @param sharedRandom whether the beans of a chunk share the chunk's
+	 *                     generator rather than each getting its own
+	 */
+	public BeanFactory(RandomType randomType, boolean sharedRandom) {
+		this.randomType = randomType;
+		this.sharedRandom = sharedRandom;
+	}
+
+	/**
+	 * Creates beanCount beans with Bean.createInstance(), so the beans are of the
+	 * type selected by Config.getLogicType().
+	 *
+	 * @param slotCount the number of slots in the machine
+	 * @param isLuck    whether the beans are in luck mode
+	 * @param beanCount the number of beans to create
+	 * @param seed      the seed of the population
+	 * @return the beans
+	 */
+	public Bean[] createBeans(int slotCount, boolean isLuck, int beanCount, long seed) {
+		return createBeans(beanCount, seed, rand -> Bean.createInstance(slotCount, isLuck, rand));
+	}
+
+	/**
+	 * Creates beanCount beans with Bean.createInstance() from a seed that differs
+	 * from call to call.
+	 *
+	 * @param slotCount the number of slots in the machine
+	 * @param isLuck    whether the beans are in luck mode
+	 * @param beanCount the number of beans to create
+	 * @return the beans
+	 */
+	public Bean[] createBeans(int slotCount, boolean isLuck, int beanCount) {
+		return createBeans(slotCount, isLuck, beanCount, new SplittableRandom().nextLong());
+	}
+
+	/**
+	 * Creates beanCount LazyBeans, with skill levels drawn from a SkillSampler.
+	 *
+	 * @param slotCount the number of slots in the machine
+	 * @param isLuck    whether the beans are in luck mode
+	 * @param beanCount the number of beans to create
+	 * @param seed      the seed of the population
+	 * @return the beans
+	 */
+	public Bean[] createLazyBeans(int slotCount, boolean isLuck, int beanCount, long seed) {
+		SkillSampler sampler = isLuck ? null : new SkillSampler(slotCount);
+		return createBeans(beanCount, seed, rand -> new LazyBean(isLuck, rand, isLuck ? 0 : sampler.sample(rand)));
+	}
+
+	/**
+	 * Creates a counter-based BeanPool of beanCount beans. Skill levels are drawn
+	 * from a SkillSampler chunk by chunk in parallel, and bounces are decided by
+	 * CounterRandom with the same seed.
+	 *
+	 * @param slotCount the number of slots in the machine
+	 * @param isLuck    whether the beans are in luck mode
+	 * @param beanCount the number of beans to create
+	 * @param seed      the seed of the population
+	 * @return the pool
+	 */
+	public BeanPool createPool(int slotCount, boolean isLuck, int beanCount, long seed) {
+		BeanPool pool = BeanPool.counterBasedWithoutSkills(beanCount, slotCount, isLuck, seed);
+		if (!isLuck) {
+			BeanPool.checkSlotCount(slotCount);
+			SkillSampler sampler = new SkillSampler(slotCount);
+			forEachChunk(beanCount, chunk -> {
+				Random rand = createChunkRandom(seed, chunk);
+				int end = (int) Math.min(beanCount, (chunk + 1L) * CHUNK_SIZE);
+				pool.drawSkillLevels(sampler, chunk * CHUNK_SIZE, end, rand);
+			});
+		}
+		return pool;
+	}
+
+	/**
+	 * Creates beanCount beans with the given constructor, one chunk per task.
+	 *
+	 * @param beanCount the number of beans to create
+	 * @param seed      the seed of the population
+	 * @param create    creates a bean that draws from the given generator
+	 * @return the beans
+	 */
+	private Bean[] createBeans(int beanCount, long seed, Function<Random, Bean> create) {
+		Bean[] beans = new Bean[beanCount];
+		forEachChunk(beanCount, chunk -> {
+			Random chunkRand = createChunkRandom(seed, chunk);
+			int end = (int) Math.min(beanCount, (chunk + 1L) * CHUNK_SIZE);
+			for (int i = chunk * CHUNK_SIZE; i < end; i++) {
+				beans[i] = create.apply(sharedRandom ? chunkRand : createRandom(chunkRand.nextLong()));
+			}
+		});
+		return beans;
+	}
+
+	/**
+	 * Runs task for every chunk of a population of beanCount beans, in parallel
+	 * if there is more than one chunk.
+	 *
+	 * @param beanCount the number of beans in the population
+	 * @param task      the work to do for a chunk number
+	 */
+	private static void forEachChunk(int beanCount, IntConsumer task) {
+		int chunkCount = (int) (((long) beanCount + CHUNK_SIZE - 1) / CHUNK_SIZE);
+		if (chunkCount <= 1) {
+			for (int chunk = 0; chunk < chunkCount; chunk++) {
+				task.accept(chunk);
+			}
+		} else {
+			IntStream.range(0, chunkCount).parallel().forEach(task);
+		}
+	}
+
+	/**
+	 * Creates the generator of a chunk.
+	 *
+	 * @param seed  the seed of the population
+	 * @param chunk the chunk number
+	 * @return the generator
+	 */
+	private Random createChunkRandom(long seed, int chunk) {
+		return createRandom(BeanRandom.splitMix64(seed + (chunk + 1) * CHUNK_GAMMA));
+	}
+
+	/**
+	 * Creates a generator of the factory's type with the given seed.
+	 *
+	 * @param seed the initial seed
+	 * @return the generator
+	 */
+	public Random createRandom(long seed) {
+		return randomType.create(seed);
+	}
+}
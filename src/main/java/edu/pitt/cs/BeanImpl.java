@@ -35,7 +35,7 @@ import java.util.Random;
  * goes right.
  */
 
-public class BeanImpl implements Bean {
+public class BeanImpl implements EngineBean {
 
 	// TODO: Add more member variables as needed
 	private int xpos;
@@ -58,10 +58,40 @@ public class BeanImpl implements Bean {
 		this.isLuck = isLuck;
 		this.rand = rand;
 
+		this.skillLevel = drawSkillLevel(slotCount, rand);
+	}
+
+	/**
+	 * Draws a skill level according to the formula in the class description.
+	 * 
+	 * @param slotCount the number of slots in the machine
+	 * @param rand      the random number generator
+	 * @return a skill level in [0, slotCount-1]
+	 */
+	static int drawSkillLevel(int slotCount, Random rand) {
 		double skillAverage = (slotCount - 1) * 0.5;
 		double skillStDev = Math.sqrt(slotCount * 0.5 * (1 - 0.5));
 		int skillLevel = (int) Math.round(rand.nextGaussian() * skillStDev + skillAverage);
-		this.skillLevel = skillLevel < 0 ? 0 : skillLevel;
+		skillLevel = skillLevel > (slotCount - 1) ? (slotCount - 1) : skillLevel;
+		return skillLevel < 0 ? 0 : skillLevel;
+	}
+
+	/**
+	 * Returns whether the bean was created in luck mode.
+	 * 
+	 * @return true if the bean is in luck mode, false if in skill mode
+	 */
+	public boolean isLuck() {
+		return isLuck;
+	}
+
+	/**
+	 * Returns the skill level of the bean.
+	 * 
+	 * @return the skill level of the bean
+	 */
+	public int getSkillLevel() {
+		return skillLevel;
 	}
 
 	/**
@@ -117,4 +147,22 @@ public class BeanImpl implements Bean {
 		}
 		ypos++;
 	}
+
+	/**
+	 * Chooses the next position of the bean on a board with biased pegs. In luck
+	 * mode, the bean goes right with the chance of the peg it is on. In skill
+	 * mode, it moves as in advanceStep().
+	 *
+	 * @param board the pegs of the machine
+	 */
+	public void advanceStep(PegBias board) {
+		if (!isLuck) {
+			advanceStep();
+			return;
+		}
+		if (board.bounceRight(xpos, ypos, rand)) {
+			xpos++;
+		}
+		ypos++;
+	}
 }
\ No newline at end of file
@@ -0,0 +1,394 @@
+package edu.pitt.cs;
+
+import java.util.Random;
+
+/**
+ * BeanPool: A population of beans stored as parallel primitive arrays rather
+ * than as Bean objects. Bean i is described by xpos[i] and skill[i]. The
+ * y-coordinate is not stored since the engine that owns the pool always knows
+ * which row a bean is in, and all beans share the mode and the random number
+ * generator of the pool. That brings the cost of a bean down to 6 bytes.
+ *
+ * <p>
+ * Beans in the pool move according to exactly the same rules as BeanImpl.
+ * In luck mode, though, a bounce does not cost a call to rand.nextInt(2).
+ * The pool draws 64 random bits at a time with rand.nextLong() and hands them
+ * out one per bounce, across all beans and steps. A bean that has to make k
+ * bounces at once takes k bits and goes right as many times as there are one
+ * bits among them.
+ *
+ * <p>
+ * A pool created with counterBased() instead of shared() is counter-based: the
+ * bounce of bean i at row y is CounterRandom.bounce(seed, i, run, y), where
+ * run is bumped by nextRun() whenever the engine drops the beans again. Such a
+ * pool has no shared mutable state in luck mode, so beans may be advanced in
+ * any order or from several threads and still land in the same slots.
+ *
+ * <p>
+ * A pool converted from luck mode Bean objects with fromBeans() keeps the
+ * objects, and each bean still bounces with its own random number generator.
+ * Runs with seeded beans are therefore as reproducible as with
+ * BeanCounterLogicImpl, at the cost of a call to the bean per bounce. Such a
+ * pool holds on to every Bean object, so it takes as much memory per bean as
+ * the objects themselves plus the 6 bytes of the pool.
+ */
+
+public class BeanPool {
+	private int slotCount;
+	private boolean isLuck;
+	private Random rand;
+	private boolean isCounterBased;
+	private long seed;				// Seed of a counter-based pool
+	private int run;				// Run number of a counter-based pool
+	private int[] xpos;
+	private short[] skill;
+	private Bean[] beans;			// Luck mode beans that bounce with their own generators, or null
+	private long randomBits;		// Unused random bits, consumed from the lowest bit up
+	private int randomBitCount;		// Number of unused bits in randomBits
+
+	/**
+	 * Constructor - creates a pool of beans with all skill levels set to 0 and
+	 * no source of bounce decisions yet; the factory methods fill in the rest.
+	 *
+	 * @param size      the number of beans in the pool
+	 * @param slotCount the number of slots in the machine
+	 * @param isLuck    whether the beans are in luck mode
+	 */
+	private BeanPool(int size, int slotCount, boolean isLuck) {
+		this.slotCount = slotCount;
+		this.isLuck = isLuck;
+		this.xpos = new int[size];
+		this.skill = new short[size];
+	}
+
+	/**
+	 * Creates a pool of beans in either luck mode or skill mode whose bounces
+	 * are drawn from one shared generator. In skill mode, skill levels have the
+	 * same distribution as in BeanImpl and are drawn in bulk with a
+	 * SkillSampler.
+	 *
+	 * @param size      the number of beans in the pool
+	 * @param slotCount the number of slots in the machine
+	 * @param isLuck    whether the beans are in luck mode
+	 * @param rand      the random number generator shared by all beans
+	 * @return the pool
+	 */
+	static BeanPool shared(int size, int slotCount, boolean isLuck, Random rand) {
+		BeanPool pool = new BeanPool(size, slotCount, isLuck);
+		pool.rand = rand;
+		pool.drawSkillLevels(slotCount, rand);
+		return pool;
+	}
+
+	/**
+	 * Creates a counter-based pool of beans in either luck mode or skill mode. In
+	 * skill mode, skill levels are drawn as in shared() from a generator seeded
+	 * with seed.
+	 *
+	 * @param size      the number of beans in the pool
+	 * @param slotCount the number of slots in the machine
+	 * @param isLuck    whether the beans are in luck mode
+	 * @param seed      the seed of all bounce decisions
+	 * @return the pool
+	 */
+	static BeanPool counterBased(int size, int slotCount, boolean isLuck, long seed) {
+		BeanPool pool = counterBasedWithoutSkills(size, slotCount, isLuck, seed);
+		pool.drawSkillLevels(slotCount, new SplittableBeanRandom(seed));
+		return pool;
+	}
+
+	/**
+	 * Creates a counter-based pool of beans with all skill levels set to 0, for
+	 * callers that assign skill levels with drawSkillLevels().
+	 *
+	 * @param size      the number of beans in the pool
+	 * @param slotCount the number of slots in the machine
+	 * @param isLuck    whether the beans are in luck mode
+	 * @param seed      the seed of all bounce decisions
+	 * @return the pool
+	 */
+	static BeanPool counterBasedWithoutSkills(int size, int slotCount, boolean isLuck, long seed) {
+		BeanPool pool = new BeanPool(size, slotCount, isLuck);
+		pool.isCounterBased = true;
+		pool.seed = seed;
+		return pool;
+	}
+
+	/**
+	 * Draws the skill levels of all beans of a skill mode pool.
+	 *
+	 * @param slotCount the number of slots in the machine
+	 * @param rand      the random number generator
+	 */
+	private void drawSkillLevels(int slotCount, Random rand) {
+		if (!isLuck) {
+			checkSlotCount(slotCount);
+			drawSkillLevels(new SkillSampler(slotCount), 0, skill.length, rand);
+		}
+	}
+
+	/**
+	 * Draws the skill levels of beans [from, to) in bulk. The sampler must have
+	 * passed checkSlotCount().
+	 *
+	 * @param sampler the sampler of skill levels
+	 * @param from    index of the first bean
+	 * @param to      one past the index of the last bean
+	 * @param rand    the random number generator
+	 */
+	void drawSkillLevels(SkillSampler sampler, int from, int to, Random rand) {
+		sampler.sample(skill, from, to, rand);
+	}
+
+	/**
+	 * Adapter from the object representation. Copies the mode and skill levels
+	 * of the beans into a new pool. In luck mode the pool keeps the beans, which
+	 * go on making their bounce decisions with their own random number
+	 * generators.
+	 *
+	 * @param beans     the beans to copy; all must be in the same mode
+	 * @param slotCount the number of slots in the machine
+	 * @return a pool with the same beans
+	 * @throws IllegalArgumentException if the beans are not EngineBeans
+	 */
+	static BeanPool fromBeans(Bean[] beans, int slotCount) {
+		boolean isLuck = beans.length == 0 || EngineBean.of(beans[0]).isLuck();
+		BeanPool pool = new BeanPool(beans.length, slotCount, isLuck);
+		if (isLuck) {
+			pool.beans = beans.clone();
+		} else {
+			checkSlotCount(slotCount);
+			for (int i = 0; i < beans.length; i++) {
+				pool.skill[i] = (short) Math.min(EngineBean.of(beans[i]).getSkillLevel(), slotCount - 1);
+			}
+		}
+		return pool;
+	}
+
+	/**
+	 * Skill levels are stored as shorts, so they must fit in [0, Short.MAX_VALUE].
+	 *
+	 * @param slotCount the number of slots in the machine
+	 */
+	static void checkSlotCount(int slotCount) {
+		if (slotCount - 1 > Short.MAX_VALUE) {
+			throw new IllegalArgumentException("Skill mode pools support at most "
+					+ (Short.MAX_VALUE + 1) + " slots: " + slotCount);
+		}
+	}
+
+	/**
+	 * Returns the number of beans in the pool.
+	 *
+	 * @return number of beans
+	 */
+	public int size() {
+		return xpos.length;
+	}
+
+	/**
+	 * Returns the number of slots of the machine the pool was created for. Skill
+	 * levels are drawn or clamped for that machine only.
+	 *
+	 * @return number of slots
+	 */
+	public int getSlotCount() {
+		return slotCount;
+	}
+
+	/**
+	 * Returns whether the beans in the pool are in luck mode.
+	 *
+	 * @return true if in luck mode, false if in skill mode
+	 */
+	public boolean isLuck() {
+		return isLuck;
+	}
+
+	/**
+	 * Returns whether bounce decisions are a pure function of the seed, the bean
+	 * index and the row, so beans may be advanced in any order.
+	 *
+	 * @return true if the pool was created with counterBased()
+	 */
+	public boolean isCounterBased() {
+		return isCounterBased;
+	}
+
+	/**
+	 * Starts a new run, so that beans dropped again take new paths. Only affects
+	 * counter-based pools.
+	 */
+	public void nextRun() {
+		run++;
+	}
+
+	/**
+	 * Returns the current X-coordinate of bean i.
+	 *
+	 * @param i index of the bean
+	 * @return the current X-coordinate of the bean
+	 */
+	public int getXPos(int i) {
+		return xpos[i];
+	}
+
+	/**
+	 * Returns the skill level of bean i.
+	 *
+	 * @param i index of the bean
+	 * @return the skill level of the bean
+	 */
+	public int getSkillLevel(int i) {
+		return skill[i];
+	}
+
+	/**
+	 * Sets the skill level of bean i. Used by engines that reorder the pool by
+	 * skill level on repeat.
+	 *
+	 * @param i          index of the bean
+	 * @param skillLevel the new skill level
+	 */
+	void setSkillLevel(int i, int skillLevel) {
+		skill[i] = (short) skillLevel;
+	}
+
+	/**
+	 * Resets beans [from, to) to their initial state.
+	 *
+	 * @param from index of the first bean to reset
+	 * @param to   one past the index of the last bean to reset
+	 */
+	public void reset(int from, int to) {
+		for (int i = from; i < to; i++) {
+			xpos[i] = 0;
+			if (beans != null) {
+				beans[i].reset();
+			}
+		}
+	}
+
+	/**
+	 * Updates the X-coordinate of bean i when it is advanced one step in the
+	 * machine, following the same rules as BeanImpl.advanceStep().
+	 *
+	 * @param i   index of the bean
+	 * @param row the row the bean is bouncing off
+	 */
+	public void advanceStep(int i, int row) {
+		advanceStep(i, row, null);
+	}
+
+	/**
+	 * Updates the X-coordinate of bean i when it is advanced one step in a
+	 * machine whose pegs may be biased. In luck mode on a biased board, bean i
+	 * goes right with the chance of its peg: a counter-based pool compares the
+	 * chance with CounterRandom.uniform(), a pool of bean objects lets the bean
+	 * decide with EngineBean.advanceStep(PegBias), and any other pool draws 32
+	 * bits from its generator.
+	 *
+	 * @param i     index of the bean
+	 * @param row   the row the bean is bouncing off
+	 * @param board the pegs of the machine, or null for a fair board
+	 */
+	public void advanceStep(int i, int row, PegBias board) {
+		if (!isLuck) {
+			if (xpos[i] < skill[i]) {
+				xpos[i]++;
+			}
+		} else if (board != null) {
+			if (beans != null) {
+				EngineBean.of(beans[i]).advanceStep(board);
+				xpos[i] = beans[i].getXPos();
+			} else {
+				int bits = isCounterBased ? CounterRandom.uniform(seed, i, run, row) : rand.nextInt();
+				if (board.bounceRight(xpos[i], row, bits)) {
+					xpos[i]++;
+				}
+			}
+		} else if (isCounterBased) {
+			xpos[i] += CounterRandom.bounce(seed, i, run, row);
+		} else if (beans != null) {
+			beans[i].advanceStep();
+			xpos[i] = beans[i].getXPos();
+		} else {
+			if (randomBitCount == 0) {
+				randomBits = rand.nextLong();
+				randomBitCount = 64;
+			}
+			xpos[i] += (int) (randomBits & 1);
+			randomBits >>>= 1;
+			randomBitCount--;
+		}
+	}
+
+	/**
+	 * Updates the X-coordinate of bean i as if advanceStep(i, row) was called for
+	 * rows consecutive rows starting at fromRow.
+	 *
+	 * @param i       index of the bean
+	 * @param fromRow the first row the bean bounces off
+	 * @param rows    the number of rows to advance the bean
+	 */
+	public void advanceSteps(int i, int fromRow, int rows) {
+		advanceSteps(i, fromRow, rows, null);
+	}
+
+	/**
+	 * Updates the X-coordinate of bean i as if advanceStep(i, row, board) was
+	 * called for rows consecutive rows starting at fromRow. On a biased board,
+	 * the chance of going right differs from peg to peg, so luck mode beans are
+	 * advanced one row at a time.
+	 *
+	 * @param i       index of the bean
+	 * @param fromRow the first row the bean bounces off
+	 * @param rows    the number of rows to advance the bean
+	 * @param board   the pegs of the machine, or null for a fair board
+	 */
+	public void advanceSteps(int i, int fromRow, int rows, PegBias board) {
+		if (!isLuck) {
+			if (xpos[i] < skill[i]) {
+				xpos[i] = Math.min(skill[i], xpos[i] + rows);
+			}
+		} else if (board != null) {
+			for (int row = fromRow; row < fromRow + rows; row++) {
+				advanceStep(i, row, board);
+			}
+		} else if (isCounterBased) {
+			xpos[i] += CounterRandom.countRightBounces(seed, i, run, fromRow, fromRow + rows);
+		} else if (beans != null) {
+			beans[i].advanceSteps(rows);
+			xpos[i] = beans[i].getXPos();
+		} else {
+			xpos[i] += countRightBounces(rows);
+		}
+	}
+
+	/**
+	 * Takes the given number of random bits and counts the one bits among them.
+	 *
+	 * @param bounces the number of bounces to make
+	 * @return the number of bounces that went right
+	 */
+	private int countRightBounces(int bounces) {
+		int right = 0;
+		while (bounces > 0) {
+			if (randomBitCount == 0) {
+				randomBits = rand.nextLong();
+				randomBitCount = 64;
+			}
+			int taken = Math.min(bounces, randomBitCount);
+			if (taken == 64) {
+				right += Long.bitCount(randomBits);
+				randomBits = 0;
+			} else {
+				right += Long.bitCount(randomBits & ((1L << taken) - 1));
+				randomBits >>>= taken;
+			}
+			randomBitCount -= taken;
+			bounces -= taken;
+		}
+		return right;
+	}
+}
@@ -0,0 +1,120 @@
+package edu.pitt.cs;
+
+import java.util.Random;
+
+/**
+ * BeanRandom: Base class for fast random number generators that can be passed
+ * anywhere a java.util.Random is expected, such as Bean.createInstance().
+ *
+ * <p>
+ * java.util.Random keeps its seed in an AtomicLong and updates it with a
+ * compare-and-swap on every call, and nextGaussian() is synchronized. Neither
+ * is needed when a generator is used by a single machine. Subclasses only
+ * provide nextLong(); every other method is derived from it without any
+ * synchronization.
+ *
+ * <p>
+ * Note that java.util.Random calls setSeed() from its constructor, before
+ * subclass fields are initialized. Subclasses must therefore initialize their
+ * state in setSeed() and must not give their state fields initializers.
+ */
+
+public abstract class BeanRandom extends Random {
+	private static final long serialVersionUID = 1L;
+
+	private double nextNextGaussian;
+	private boolean haveNextNextGaussian;
+
+	/**
+	 * Constructor - creates a generator seeded with the given seed.
+	 *
+	 * @param seed the initial seed
+	 */
+	protected BeanRandom(long seed) {
+		super(seed);
+	}
+
+	/**
+	 * Reseeds the generator.
+	 *
+	 * @param seed the new seed
+	 */
+	@Override
+	public void setSeed(long seed) {
+		haveNextNextGaussian = false;
+		reseed(seed);
+	}
+
+	/**
+	 * Initializes the state of the generator from the seed.
+	 *
+	 * @param seed the seed
+	 */
+	protected abstract void reseed(long seed);
+
+	/**
+	 * Returns the next 64 random bits.
+	 *
+	 * @return a uniformly distributed long
+	 */
+	@Override
+	public abstract long nextLong();
+
+	@Override
+	protected int next(int bits) {
+		return (int) (nextLong() >>> (64 - bits));
+	}
+
+	@Override
+	public int nextInt() {
+		return (int) (nextLong() >>> 32);
+	}
+
+	@Override
+	public boolean nextBoolean() {
+		return nextLong() < 0;
+	}
+
+	@Override
+	public double nextDouble() {
+		return (nextLong() >>> 11) * 0x1.0p-53;
+	}
+
+	/**
+	 * Same polar method as java.util.Random.nextGaussian(), without the lock.
+	 *
+	 * @return a normally distributed double with mean 0 and standard deviation 1
+	 */
+	@Override
+	public double nextGaussian() {
+		if (haveNextNextGaussian) {
+			haveNextNextGaussian = false;
+			return nextNextGaussian;
+		}
+		double v1;
+		double v2;
+		double s;
+		do {
+			v1 = 2 * nextDouble() - 1;
+			v2 = 2 * nextDouble() - 1;
+			s = v1 * v1 + v2 * v2;
+		} while (s >= 1 || s == 0);
+		double multiplier = StrictMath.sqrt(-2 * StrictMath.log(s) / s);
+		nextNextGaussian = v2 * multiplier;
+		haveNextNextGaussian = true;
+		return v1 * multiplier;
+	}
+
+	/**
+	 * SplitMix64 step. Used to expand a 64-bit seed into generator state.
+	 *
+	 * @param state the current state
+	 * @return the mixed output for state
+	 */
+	static long splitMix64(long state) {
+		long z = state;
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+}
@@ -0,0 +1,131 @@
+package edu.pitt.cs;
+
+import java.util.Random;
+
+/**
+ * BinomialSampler: Draws exact samples from a binomial distribution in time
+ * that does not grow with the number of trials, so that the outcome of a
+ * billion coin flips can be drawn as cheaply as the outcome of ten.
+ *
+ * <p>
+ * For a small expected value (n * p &lt; 10) it uses the inversion algorithm,
+ * which counts geometric waiting times between successes. Otherwise it uses
+ * the BTRS transformed rejection algorithm from W. Hormann, "The generation of
+ * binomial random variates", Journal of Statistical Computation and
+ * Simulation 46, 1993.
+ */
+
+public class BinomialSampler {
+
+	// Error of Stirling's approximation of log(k!) for k = 0..9, see stirlingTail()
+	private static final double[] STIRLING_TAIL = {
+		0.0810614667953272, 0.0413406959554092, 0.0276779256849983, 0.02079067210376509,
+		0.0166446911898211, 0.0138761288230707, 0.0118967099458917, 0.0104112652619720,
+		0.00925546218271273, 0.00833056343336287
+	};
+
+	private BinomialSampler() {
+	}
+
+	/**
+	 * Returns the number of successes in n independent trials that each succeed
+	 * with probability p.
+	 *
+	 * @param n    the number of trials
+	 * @param p    the probability of success of each trial
+	 * @param rand the random number generator
+	 * @return a sample from Binomial(n, p)
+	 */
+	public static long sample(long n, double p, Random rand) {
+		if (n <= 0 || p <= 0.0) {
+			return 0;
+		}
+		if (p >= 1.0) {
+			return n;
+		}
+		if (p > 0.5) {
+			return n - sample(n, 1.0 - p, rand);
+		}
+		if (n * p < 10.0) {
+			return sampleInversion(n, p, rand);
+		}
+		return sampleBtrs(n, p, rand);
+	}
+
+	/**
+	 * Counts successes by summing geometric waiting times until they exceed n.
+	 *
+	 * @param n    the number of trials
+	 * @param p    the probability of success, at most 0.5
+	 * @param rand the random number generator
+	 * @return a sample from Binomial(n, p)
+	 */
+	private static long sampleInversion(long n, double p, Random rand) {
+		double logq = Math.log1p(-p);
+		double trials = 0;
+		long successes = 0;
+		while (true) {
+			// 1 - nextDouble() is in (0, 1], so the logarithm is finite
+			trials += Math.ceil(Math.log(1.0 - rand.nextDouble()) / logq);
+			if (trials > n) {
+				return successes;
+			}
+			successes++;
+		}
+	}
+
+	/**
+	 * Transformed rejection with squeeze (BTRS).
+	 *
+	 * @param n    the number of trials
+	 * @param p    the probability of success, at most 0.5
+	 * @param rand the random number generator
+	 * @return a sample from Binomial(n, p)
+	 */
+	private static long sampleBtrs(long n, double p, Random rand) {
+		double stddev = Math.sqrt(n * p * (1 - p));
+		double b = 1.15 + 2.53 * stddev;
+		double a = -0.0873 + 0.0248 * b + 0.01 * p;
+		double c = n * p + 0.5;
+		double vr = 0.92 - 4.2 / b;
+		double r = p / (1 - p);
+		double alpha = (2.83 + 5.1 / b) * stddev;
+		double m = Math.floor((n + 1) * p);
+
+		while (true) {
+			double u = rand.nextDouble() - 0.5;
+			double v = rand.nextDouble();
+			double us = 0.5 - Math.abs(u);
+			double k = Math.floor((2 * a / us + b) * u + c);
+			if (k < 0 || k > n) {
+				continue;
+			}
+			if (us >= 0.07 && v <= vr) {
+				return (long) k;
+			}
+			v = Math.log(v * alpha / (a / (us * us) + b));
+			double bound = (m + 0.5) * Math.log((m + 1) / (r * (n - m + 1)))
+					+ (n + 1) * Math.log((n - m + 1) / (n - k + 1))
+					+ (k + 0.5) * Math.log(r * (n - k + 1) / (k + 1))
+					+ stirlingTail(m) + stirlingTail(n - m)
+					- stirlingTail(k) - stirlingTail(n - k);
+			if (v <= bound) {
+				return (long) k;
+			}
+		}
+	}
+
+	/**
+	 * Returns the error of Stirling's approximation of log(k!).
+	 *
+	 * @param k a non-negative integer
+	 * @return log(k!) - (log(sqrt(2 pi)) + (k + 0.5) log(k + 1) - (k + 1))
+	 */
+	private static double stirlingTail(double k) {
+		if (k <= 9) {
+			return STIRLING_TAIL[(int) k];
+		}
+		double kp1sq = (k + 1) * (k + 1);
+		return (1.0 / 12 - (1.0 / 360 - 1.0 / 1260 / kp1sq) / kp1sq) / (k + 1);
+	}
+}
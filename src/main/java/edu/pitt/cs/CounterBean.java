@@ -0,0 +1,140 @@
+package edu.pitt.cs;
+
+/**
+ * CounterBean: A bean whose bounce decisions come from CounterRandom instead
+ * of a shared java.util.Random. The direction the bean takes at each row
+ * depends only on the seed, the bean's index and the row, so the outcome of
+ * an experiment does not depend on the order in which beans are advanced.
+ *
+ * <p>
+ * A bean counts its runs: every reset() after the bean has started falling
+ * starts a new run, so a repeated experiment does not replay the same paths.
+ * The skill level in skill mode is drawn with the same formula as BeanImpl,
+ * from a generator seeded with the bean's own key.
+ */
+
+public class CounterBean implements EngineBean {
+	private int xpos;
+	private int ypos;
+	private boolean isLuck;
+	private long seed;
+	private int beanId;
+	private int run;
+	private int skillLevel;
+
+	/**
+	 * Constructor - creates a bean in either luck mode or skill mode.
+	 *
+	 * @param slotCount the number of slots in the machine
+	 * @param isLuck    whether the bean is in luck mode
+	 * @param seed      the seed of the experiment, shared by all beans
+	 * @param beanId    the index of the bean, unique among the beans
+	 */
+	CounterBean(int slotCount, boolean isLuck, long seed, int beanId) {
+		this.isLuck = isLuck;
+		this.seed = seed;
+		this.beanId = beanId;
+		this.skillLevel = BeanImpl.drawSkillLevel(slotCount,
+				new SplittableBeanRandom(CounterRandom.block(seed, beanId, -1, 0)));
+	}
+
+	/**
+	 * Returns the current X-coordinate position of the bean in the logical
+	 * coordinate system.
+	 *
+	 * @return the current X-coordinate of the bean
+	 */
+	public int getXPos() {
+		return xpos;
+	}
+
+	/**
+	 * Returns the current Y-coordinate position of the bean in the logical
+	 * coordinate system.
+	 *
+	 * @return the current Y-coordinate of the bean
+	 */
+	public int getYPos() {
+		return ypos;
+	}
+
+	/**
+	 * Resets the bean to its initial state. If the bean has moved since the last
+	 * reset, it starts a new run.
+	 */
+	public void reset() {
+		if (ypos > 0) {
+			run++;
+		}
+		xpos = 0;
+		ypos = 0;
+	}
+
+	/**
+	 * Chooses the next position of the bean. In luck mode, the direction is
+	 * CounterRandom.bounce() of the current row. In skill mode, the bean goes
+	 * right until it has gone right skillLevel times, like BeanImpl.
+	 */
+	public void advanceStep() {
+		if (isLuck) {
+			xpos += CounterRandom.bounce(seed, beanId, run, ypos);
+		} else if (xpos < skillLevel) {
+			xpos++;
+		}
+		ypos++;
+	}
+
+	/**
+	 * Moves the bean down the given number of rows. In luck mode, the right
+	 * bounces over those rows are counted with CounterRandom.countRightBounces()
+	 * rather than one row at a time.
+	 *
+	 * @param rows the number of rows to move down
+	 */
+	public void advanceSteps(int rows) {
+		if (isLuck) {
+			xpos += CounterRandom.countRightBounces(seed, beanId, run, ypos, ypos + rows);
+		} else {
+			xpos = Math.min(skillLevel, ypos + rows);
+		}
+		ypos += rows;
+	}
+
+	/**
+	 * Chooses the next position of the bean on a board with biased pegs. In luck
+	 * mode, the peg's chance of going right is compared with
+	 * CounterRandom.uniform() of the current row, so the outcome still only
+	 * depends on the seed, the bean and the row. In skill mode, the bean moves
+	 * as in advanceStep().
+	 *
+	 * @param board the pegs of the machine
+	 */
+	public void advanceStep(PegBias board) {
+		if (!isLuck) {
+			advanceStep();
+			return;
+		}
+		if (board.bounceRight(xpos, ypos, CounterRandom.uniform(seed, beanId, run, ypos))) {
+			xpos++;
+		}
+		ypos++;
+	}
+
+	/**
+	 * Returns whether the bean was created in luck mode.
+	 *
+	 * @return true if the bean is in luck mode, false if in skill mode
+	 */
+	public boolean isLuck() {
+		return isLuck;
+	}
+
+	/**
+	 * Returns the skill level of the bean.
+	 *
+	 * @return the skill level of the bean
+	 */
+	public int getSkillLevel() {
+		return skillLevel;
+	}
+}
@@ -0,0 +1,96 @@
+package edu.pitt.cs;
+
+/**
+ * CounterRandom: A counter-based random number generator for bounce decisions.
+ * There is no state to advance. The direction bean beanId takes at a given row
+ * of a given run is a pure function of (seed, beanId, run, row), so the path
+ * of every bean can be computed on its own, in any order and on any thread,
+ * and the same seed always gives the same histogram.
+ *
+ * <p>
+ * The key is hashed with two rounds of the SplitMix64 finalizer, the same
+ * mixing function java.util.SplittableRandom uses, into a 64-bit block that
+ * holds the decisions for 64 consecutive rows. A bit set to 1 means the bean
+ * goes right. Counting the right bounces over many rows is then a popcount
+ * per block, just like in BeanPool.
+ */
+
+public class CounterRandom {
+	private static final long BEAN_GAMMA = 0x9e3779b97f4a7c15L;
+	private static final long BLOCK_GAMMA = 0xd1b54a32d192ed03L;
+
+	private CounterRandom() {
+	}
+
+	/**
+	 * Returns the 64 bounce decisions of bean beanId for rows [64 * block,
+	 * 64 * block + 63] of the given run. Bit k holds the decision for row
+	 * 64 * block + k.
+	 *
+	 * @param seed   the seed of the experiment
+	 * @param beanId the index of the bean
+	 * @param run    the number of the run, so a repeated experiment gets new paths
+	 * @param block  the row divided by 64
+	 * @return 64 random bits
+	 */
+	public static long block(long seed, long beanId, int run, int block) {
+		long key = BeanRandom.splitMix64(seed + beanId * BEAN_GAMMA);
+		return BeanRandom.splitMix64(key ^ ((((long) run << 32) | (block & 0xffffffffL)) * BLOCK_GAMMA));
+	}
+
+	/**
+	 * Returns whether bean beanId goes right at the given row.
+	 *
+	 * @param seed   the seed of the experiment
+	 * @param beanId the index of the bean
+	 * @param run    the number of the run
+	 * @param row    the row the bean bounces off
+	 * @return 1 if the bean goes right, 0 if it goes left
+	 */
+	public static int bounce(long seed, long beanId, int run, int row) {
+		return (int) (block(seed, beanId, run, row >>> 6) >>> (row & 63)) & 1;
+	}
+
+	/**
+	 * Returns 32 random bits for bean beanId at the given row, for boards whose
+	 * pegs are not fair. The bits come from a block whose index is the
+	 * complement of the row, so they are independent of the 50/50 decisions
+	 * of block() and bounce().
+	 *
+	 * @param seed   the seed of the experiment
+	 * @param beanId the index of the bean
+	 * @param run    the number of the run
+	 * @param row    the row the bean bounces off
+	 * @return 32 random bits
+	 */
+	public static int uniform(long seed, long beanId, int run, int row) {
+		return (int) (block(seed, beanId, run, ~row) >>> 32);
+	}
+
+	/**
+	 * Returns how many times bean beanId goes right in rows [fromRow, toRow). The
+	 * result is the same as adding up bounce() over those rows.
+	 *
+	 * @param seed    the seed of the experiment
+	 * @param beanId  the index of the bean
+	 * @param run     the number of the run
+	 * @param fromRow the first row
+	 * @param toRow   one past the last row
+	 * @return the number of right bounces
+	 */
+	public static int countRightBounces(long seed, long beanId, int run, int fromRow, int toRow) {
+		int right = 0;
+		int row = fromRow;
+		while (row < toRow) {
+			int offset = row & 63;
+			int taken = Math.min(64 - offset, toRow - row);
+			long bits = block(seed, beanId, run, row >>> 6) >>> offset;
+			if (taken < 64) {
+				bits &= (1L << taken) - 1;
+			}
+			right += Long.bitCount(bits);
+			row += taken;
+		}
+		return right;
+	}
+}
@@ -0,0 +1,57 @@
+package edu.pitt.cs;
+
+/**
+ * EngineBean: A bean that tells the engines what kind of bean it is. Engines
+ * that store beans as counts or as columns of primitives rather than as
+ * objects need a bean's mode and skill level to convert it, and machines with
+ * a PegBias need beans that can bounce off biased pegs. The beans of this
+ * package (BeanImpl, LazyBean and CounterBean) implement this interface; beans
+ * that only implement Bean, such as the BeanBuggy and BeanSolution classes
+ * from the jars, can only be run by the object engines on fair boards.
+ */
+
+public interface EngineBean extends Bean {
+	/**
+	 * Returns whether the bean was created in luck mode. Engines that store beans
+	 * as counts rather than objects use this to decide whether bean identity
+	 * matters.
+	 * 
+	 * @return true if the bean is in luck mode, false if in skill mode
+	 */
+	public boolean isLuck();
+
+	/**
+	 * Returns the skill level of the bean. Only meaningful in skill mode. Beans
+	 * created for a machine with more slots may have a skill level of slotCount
+	 * or more; engines clamp it to [0, slotCount-1].
+	 * 
+	 * @return the skill level of the bean
+	 */
+	public int getSkillLevel();
+
+	/**
+	 * Moves the bean down one row of a board with biased pegs. In luck mode, the
+	 * bean goes right with the chance of the peg it is on, decided with its own
+	 * random numbers. In skill mode, the pegs make no difference and this is
+	 * the same as advanceStep().
+	 *
+	 * @param board the pegs of the machine
+	 */
+	public void advanceStep(PegBias board);
+
+	/**
+	 * Returns the bean as an EngineBean, for engines that need to know its mode
+	 * and skill level.
+	 *
+	 * @param bean the bean to convert
+	 * @return the same bean
+	 * @throws IllegalArgumentException if the bean is not an EngineBean
+	 */
+	public static EngineBean of(Bean bean) {
+		if (bean instanceof EngineBean) {
+			return (EngineBean) bean;
+		}
+		throw new IllegalArgumentException("Unsupported bean type " + bean.getClass().getSimpleName()
+				+ "; this engine supports BeanImpl, LazyBean and CounterBean");
+	}
+}
@@ -0,0 +1,98 @@
+package edu.pitt.cs;
+
+/**
+ * FenwickTree: Counts per index with prefix sums and rank lookups in
+ * O(log size), also known as a binary indexed tree (P. M. Fenwick, "A new data
+ * structure for cumulative frequency tables", Software: Practice and
+ * Experience 24, 1994). Used to find which slot the k-th lowest bean is in
+ * without adding up all the slots below it.
+ */
+
+public class FenwickTree {
+	private long[] tree;	// tree[i] holds the sum of counts (i - lowbit(i), i], 1-based
+	private long total;
+
+	/**
+	 * Constructor - creates a tree of the given size with all counts 0.
+	 *
+	 * @param size the number of indices
+	 */
+	FenwickTree(int size) {
+		this.tree = new long[size + 1];
+	}
+
+	/**
+	 * Returns the number of indices.
+	 *
+	 * @return the size the tree was created with
+	 */
+	public int size() {
+		return tree.length - 1;
+	}
+
+	/**
+	 * Returns the sum of all counts.
+	 *
+	 * @return the total count
+	 */
+	public long getTotal() {
+		return total;
+	}
+
+	/**
+	 * Adds delta to the count at index i.
+	 *
+	 * @param i     the index
+	 * @param delta the amount to add; negative to subtract
+	 */
+	public void add(int i, long delta) {
+		total += delta;
+		for (int j = i + 1; j < tree.length; j += j & -j) {
+			tree[j] += delta;
+		}
+	}
+
+	/**
+	 * Returns the sum of the counts at indices [0, i).
+	 *
+	 * @param i one past the last index to add up
+	 * @return the prefix sum
+	 */
+	public long prefixSum(int i) {
+		long sum = 0;
+		for (int j = i; j > 0; j -= j & -j) {
+			sum += tree[j];
+		}
+		return sum;
+	}
+
+	/**
+	 * Returns the index that holds the item of the given rank when all items are
+	 * listed in index order, i.e. the smallest i with prefixSum(i + 1) &gt; rank.
+	 * Counts must not be negative.
+	 *
+	 * @param rank the 0-based rank, in [0, getTotal())
+	 * @return the index holding that item
+	 */
+	public int findRank(long rank) {
+		int index = 0;
+		for (int step = Integer.highestOneBit(size()); step > 0; step >>= 1) {
+			int next = index + step;
+			if (next < tree.length && tree[next] <= rank) {
+				index = next;
+				rank -= tree[next];
+			}
+		}
+		return index;
+	}
+
+	/**
+	 * Sets all counts to 0.
+	 */
+	public void clear() {
+		for (int i = 0; i < tree.length; i++) {
+			tree[i] = 0;
+		}
+		total = 0;
+	}
+}
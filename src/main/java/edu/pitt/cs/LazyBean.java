@@ -0,0 +1,159 @@
+package edu.pitt.cs;
+
+import java.util.Random;
+
+/**
+ * LazyBean: A bean that behaves exactly like BeanImpl but only makes its
+ * bounce decisions when somebody looks at its X-coordinate. advanceStep() just
+ * moves the bean down a row. When getXPos() is called, all the bounces since
+ * the last call are resolved at once.
+ *
+ * <p>
+ * In luck mode, the number of right bounces in k rows is the number of one
+ * bits among k fair random bits, so up to 32 rows are resolved with a single
+ * call to rand.nextInt() and Integer.bitCount(). A bean that is only looked at
+ * when it lands in its slot, as in headless runs, therefore draws a random
+ * number once every 32 rows instead of once per row. In skill mode, the bean
+ * goes right until it has gone right skillLevel times, so its X-coordinate is
+ * simply min(skillLevel, ypos).
+ *
+ * <p>
+ * Skill levels are assigned with the same formula as BeanImpl, or by the
+ * caller.
+ */
+
+public class LazyBean implements EngineBean {
+	private int xpos;
+	private int ypos;
+	private int resolvedYPos;	// Row up to which bounces are reflected in xpos
+	private boolean isLuck;
+	private Random rand;
+	private int skillLevel;
+
+	/**
+	 * Constructor - creates a bean in either luck mode or skill mode.
+	 *
+	 * @param slotCount the number of slots in the machine
+	 * @param isLuck    whether the bean is in luck mode
+	 * @param rand      the random number generator
+	 */
+	LazyBean(int slotCount, boolean isLuck, Random rand) {
+		this.isLuck = isLuck;
+		this.rand = rand;
+		this.skillLevel = BeanImpl.drawSkillLevel(slotCount, rand);
+	}
+
+	/**
+	 * Constructor - creates a bean with a skill level drawn by the caller, for
+	 * example in bulk with a SkillSampler.
+	 *
+	 * @param isLuck     whether the bean is in luck mode
+	 * @param rand       the random number generator
+	 * @param skillLevel the skill level of the bean
+	 */
+	LazyBean(boolean isLuck, Random rand, int skillLevel) {
+		this.isLuck = isLuck;
+		this.rand = rand;
+		this.skillLevel = skillLevel;
+	}
+
+	/**
+	 * Returns the current X-coordinate position of the bean in the logical
+	 * coordinate system, making any bounce decisions that are still pending.
+	 *
+	 * @return the current X-coordinate of the bean
+	 */
+	public int getXPos() {
+		if (resolvedYPos < ypos) {
+			if (isLuck) {
+				int pending = ypos - resolvedYPos;
+				for (; pending >= 32; pending -= 32) {
+					xpos += Integer.bitCount(rand.nextInt());
+				}
+				if (pending > 0) {
+					// The high bits of Random.nextInt() are the best quality ones
+					xpos += Integer.bitCount(rand.nextInt() >>> (32 - pending));
+				}
+			} else {
+				xpos = Math.min(skillLevel, ypos);
+			}
+			resolvedYPos = ypos;
+		}
+		return xpos;
+	}
+
+	/**
+	 * Returns the current Y-coordinate position of the bean in the logical
+	 * coordinate system.
+	 *
+	 * @return the current Y-coordinate of the bean
+	 */
+	public int getYPos() {
+		return ypos;
+	}
+
+	/**
+	 * Resets the bean to its initial state.
+	 */
+	public void reset() {
+		xpos = 0;
+		ypos = 0;
+		resolvedYPos = 0;
+	}
+
+	/**
+	 * Moves the bean down one row. The bounce decision is deferred until the next
+	 * call to getXPos().
+	 */
+	public void advanceStep() {
+		ypos++;
+	}
+
+	/**
+	 * Moves the bean down the given number of rows. As with advanceStep(), the
+	 * bounce decisions are deferred until the next call to getXPos().
+	 *
+	 * @param rows the number of rows to move down
+	 */
+	public void advanceSteps(int rows) {
+		ypos += rows;
+	}
+
+	/**
+	 * Moves the bean down one row of a board with biased pegs. The chance of
+	 * going right depends on where the bean is, so in luck mode any pending
+	 * bounces are resolved and this one is decided right away. In skill mode,
+	 * the bounce is deferred as in advanceStep().
+	 *
+	 * @param board the pegs of the machine
+	 */
+	public void advanceStep(PegBias board) {
+		if (!isLuck) {
+			advanceStep();
+			return;
+		}
+		if (board.bounceRight(getXPos(), ypos, rand)) {
+			xpos++;
+		}
+		ypos++;
+		resolvedYPos = ypos;
+	}
+
+	/**
+	 * Returns whether the bean was created in luck mode.
+	 *
+	 * @return true if the bean is in luck mode, false if in skill mode
+	 */
+	public boolean isLuck() {
+		return isLuck;
+	}
+
+	/**
+	 * Returns the skill level of the bean.
+	 *
+	 * @return the skill level of the bean
+	 */
+	public int getSkillLevel() {
+		return skillLevel;
+	}
+}
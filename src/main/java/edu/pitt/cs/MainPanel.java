@@ -6,8 +6,6 @@ import java.awt.Font;
 import java.awt.Graphics;
 import java.awt.Point;
 import java.text.DecimalFormat;
-import java.util.Arrays;
-import java.util.Random;
 import javax.swing.JPanel;
 
 /**
@@ -51,11 +49,8 @@ public class MainPanel extends JPanel {
 		
 		// Create the internal logic
 		logic = BeanCounterLogic.createInstance(SLOT_COUNT);
-		// Create the beans
-		beans = new Bean[beanCount];
-		for (int i = 0; i < beanCount; i++) {
-			beans[i] = Bean.createInstance(SLOT_COUNT, isLuck, new Random());
-		}
+		// Create the beans, sharing one fast generator per chunk
+		beans = new BeanFactory(RandomType.XOROSHIRO, true).createBeans(SLOT_COUNT, isLuck, beanCount);
 		// Initialize the logic with the beans
 		logic.reset(beans);
 		// Set some display related parameters
@@ -308,7 +303,7 @@ public class MainPanel extends JPanel {
 				targetPositions = null;
 				// If running, take the next step
 				if (isRunning) {
-					if (Arrays.stream(beanPositions).filter(p -> p != null).count() == 0) {
+					if (logic.isFinished()) {
 						isRunning = false;
 					} else {
 						try {
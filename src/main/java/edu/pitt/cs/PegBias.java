@@ -0,0 +1,165 @@
+package edu.pitt.cs;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * PegBias: A board whose pegs each have their own chance of sending a bean
+ * right, for modeling worn or tilted boards. Peg (x, y) is the peg at row y
+ * that a bean with X-coordinate x hits, x in [0, y], and the beans of a board
+ * with slotCount slots hit pegs in rows [0, slotCount-2].
+ *
+ * <p>
+ * The board is part of the machine: every engine takes a PegBias for its
+ * slot count in its constructor and bounces all luck mode beans off it.
+ * Beans ask the board through EngineBean.advanceStep(PegBias), so that each
+ * bean still decides with its own random numbers.
+ *
+ * <p>
+ * The probabilities are turned into sampling tables once per board: each peg
+ * gets a threshold out of 2^32, and a bounce goes right if a uniform 32-bit
+ * number is below it. That is a single array lookup and comparison per
+ * bounce, the same cost as the 50/50 bounce of a fair board. For a choice
+ * between two outcomes, the threshold is the whole of an alias table. The
+ * pegs of all rows are kept in one array, row y starting at y * (y + 1) / 2.
+ */
+
+public class PegBias {
+	private int slotCount;
+	private long[] thresholds;	// Bounce right if the unsigned next int is below the threshold
+
+	/**
+	 * Constructor - creates a board from the chance of going right at each peg.
+	 *
+	 * @param probabilities probabilities[y][x] is the chance that a bean at peg (x, y)
+	 *                      goes right; row y has y + 1 pegs
+	 */
+	PegBias(double[][] probabilities) {
+		long pegCount = (long) probabilities.length * (probabilities.length + 1) / 2;
+		if (pegCount > Integer.MAX_VALUE - 8) {
+			throw new IllegalArgumentException("Too many rows for a bias table: " + probabilities.length);
+		}
+		this.slotCount = probabilities.length + 1;
+		this.thresholds = new long[(int) pegCount];
+		for (int y = 0; y < probabilities.length; y++) {
+			if (probabilities[y].length != y + 1) {
+				throw new IllegalArgumentException("Row " + y + " has " + probabilities[y].length + " pegs");
+			}
+			for (int x = 0; x <= y; x++) {
+				double p = probabilities[y][x];
+				if (!(p >= 0 && p <= 1)) {
+					throw new IllegalArgumentException("Invalid probability at peg (" + x + ", " + y + "): " + p);
+				}
+				thresholds[getPegIndex(x, y)] = Math.round(p * 0x1p32);
+			}
+		}
+	}
+
+	/**
+	 * Creates a board where every peg sends beans right with the same chance. A
+	 * probability of 0.5 is a fair board; anything else is a tilted one.
+	 *
+	 * @param slotCount   the number of slots in the machine
+	 * @param probability the chance of going right at every peg
+	 * @return the board
+	 */
+	static PegBias uniform(int slotCount, double probability) {
+		double[][] probabilities = new double[Math.max(0, slotCount - 1)][];
+		for (int y = 0; y < probabilities.length; y++) {
+			probabilities[y] = new double[y + 1];
+			Arrays.fill(probabilities[y], probability);
+		}
+		return new PegBias(probabilities);
+	}
+
+	/**
+	 * Returns the index in thresholds of a peg.
+	 *
+	 * @param x the X-coordinate of the peg
+	 * @param y the Y-coordinate of the peg
+	 * @return the index of the peg
+	 */
+	private static int getPegIndex(int x, int y) {
+		return (int) ((long) y * (y + 1) / 2) + x;
+	}
+
+	/**
+	 * Returns the number of slots of the board.
+	 *
+	 * @return number of slots
+	 */
+	public int getSlotCount() {
+		return slotCount;
+	}
+
+	/**
+	 * Checks that the board fits a machine.
+	 *
+	 * @param machineSlotCount the number of slots in the machine
+	 * @throws IllegalArgumentException if the board has a different number of slots
+	 */
+	void checkSlotCount(int machineSlotCount) {
+		if (machineSlotCount != slotCount) {
+			throw new IllegalArgumentException("A board with " + slotCount
+					+ " slots does not fit a machine with " + machineSlotCount + " slots");
+		}
+	}
+
+	/**
+	 * Returns the chance that a bean at a peg goes right, as rounded to the
+	 * sampling table.
+	 *
+	 * @param x the X-coordinate of the peg
+	 * @param y the Y-coordinate of the peg
+	 * @return the probability of going right
+	 */
+	public double getProbability(int x, int y) {
+		return thresholds[getPegIndex(x, y)] * 0x1p-32;
+	}
+
+	/**
+	 * Decides whether a bean at a peg goes right.
+	 *
+	 * @param x    the X-coordinate of the peg
+	 * @param y    the Y-coordinate of the peg
+	 * @param rand the random number generator
+	 * @return true if the bean goes right
+	 */
+	public boolean bounceRight(int x, int y, Random rand) {
+		return bounceRight(x, y, rand.nextInt());
+	}
+
+	/**
+	 * Decides whether a bean at a peg goes right, given 32 uniformly random
+	 * bits, for beans that do not draw from a java.util.Random.
+	 *
+	 * @param x    the X-coordinate of the peg
+	 * @param y    the Y-coordinate of the peg
+	 * @param bits 32 random bits
+	 * @return true if the bean goes right
+	 */
+	public boolean bounceRight(int x, int y, int bits) {
+		return (bits & 0xffffffffL) < thresholds[getPegIndex(x, y)];
+	}
+
+	/**
+	 * Computes the chance that a bean lands in each slot by pushing the
+	 * distribution of beans down the board one row at a time. Takes time
+	 * proportional to the number of pegs; meant for checking experiments
+	 * against.
+	 *
+	 * @return the probability of landing in slot i at index i
+	 */
+	public double[] getSlotProbabilities() {
+		double[] row = new double[slotCount];
+		row[0] = 1.0;
+		for (int y = 0; y < slotCount - 1; y++) {
+			for (int x = y; x >= 0; x--) {
+				double right = row[x] * getProbability(x, y);
+				row[x + 1] += right;
+				row[x] -= right;
+			}
+		}
+		return row;
+	}
+}
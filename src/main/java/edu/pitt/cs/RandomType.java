@@ -0,0 +1,57 @@
+package edu.pitt.cs;
+
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * RandomType: The kind of random number generator given to beans and
+ * machines. JAVA_UTIL is java.util.Random and is the default of BeanFactory,
+ * since Java Path Finder knows how to enumerate its choices and the tests
+ * construct beans with it. The others avoid the atomic seed update
+ * java.util.Random does on every call; the command line and the GUI, which JPF
+ * never runs, use XOROSHIRO generators shared per chunk.
+ */
+
+public enum RandomType {
+	JAVA_UTIL, SPLITTABLE, THREAD_LOCAL, XOROSHIRO;
+
+	/**
+	 * Creates a new generator of this type.
+	 *
+	 * @return the generator
+	 */
+	public Random create() {
+		switch (this) {
+			case SPLITTABLE:
+				return new SplittableBeanRandom();
+			case THREAD_LOCAL:
+				return ThreadLocalRandom.current();
+			case XOROSHIRO:
+				return new XoroshiroRandom();
+			case JAVA_UTIL:
+			default:
+				return new Random();
+		}
+	}
+
+	/**
+	 * Creates a new generator of this type seeded with the given seed.
+	 * ThreadLocalRandom cannot be seeded, so THREAD_LOCAL gives a SPLITTABLE
+	 * generator instead, which is just as free of contention.
+	 *
+	 * @param seed the initial seed
+	 * @return the generator
+	 */
+	public Random create(long seed) {
+		switch (this) {
+			case SPLITTABLE:
+			case THREAD_LOCAL:
+				return new SplittableBeanRandom(seed);
+			case XOROSHIRO:
+				return new XoroshiroRandom(seed);
+			case JAVA_UTIL:
+			default:
+				return new Random(seed);
+		}
+	}
+}
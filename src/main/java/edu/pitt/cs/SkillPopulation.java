@@ -0,0 +1,106 @@
+package edu.pitt.cs;
+
+import java.util.Random;
+
+/**
+ * SkillPopulation: A population of skill mode beans stored as run lengths, the
+ * number of beans at each skill level, rather than as one object per bean.
+ * Skill mode beans with the same skill level behave identically, so this is
+ * all an engine needs to know about them, and memory scales with the slot
+ * count instead of the bean count.
+ *
+ * <p>
+ * BeanCounterLogicHistogram.reset(SkillPopulation) drops the runs lowest skill
+ * level first, the same order it uses on repeat().
+ */
+
+public class SkillPopulation {
+	private long[] counts;
+	private long size;
+
+	/**
+	 * Constructor - creates a population from the number of beans at each skill
+	 * level.
+	 *
+	 * @param counts number of beans at skill level k at index k; one entry per slot
+	 */
+	SkillPopulation(long[] counts) {
+		this.counts = counts.clone();
+		for (long count : counts) {
+			size += count;
+		}
+	}
+
+	/**
+	 * Adapter from the object representation. Counts the skill levels of the
+	 * beans, clamped to [0, slotCount-1].
+	 *
+	 * @param beans     the skill mode beans to count
+	 * @param slotCount the number of slots in the machine
+	 * @return a population with the same skill levels
+	 * @throws IllegalArgumentException if the beans are not EngineBeans
+	 */
+	static SkillPopulation fromBeans(Bean[] beans, int slotCount) {
+		long[] counts = new long[slotCount];
+		for (Bean bean : beans) {
+			counts[Math.min(EngineBean.of(bean).getSkillLevel(), slotCount - 1)]++;
+		}
+		return new SkillPopulation(counts);
+	}
+
+	/**
+	 * Creates a population of beanCount beans with skill levels distributed as
+	 * in BeanImpl. Rather than drawing a skill level per bean, the run lengths
+	 * are drawn directly from the multinomial distribution, as a chain of
+	 * binomial draws (one per skill level) each conditioned on the beans not yet
+	 * given a skill level. The cost does not depend on beanCount.
+	 *
+	 * @param slotCount the number of slots in the machine
+	 * @param beanCount the number of beans in the population
+	 * @param rand      the random number generator
+	 * @return the population
+	 */
+	static SkillPopulation random(int slotCount, long beanCount, Random rand) {
+		double[] probabilities = SkillSampler.skillProbabilities(slotCount);
+		long[] counts = new long[slotCount];
+		long left = beanCount;
+		double probabilityLeft = 1.0;
+		for (int k = 0; k < slotCount - 1 && left > 0; k++) {
+			double p = probabilityLeft > 0 ? Math.min(1.0, probabilities[k] / probabilityLeft) : 1.0;
+			counts[k] = BinomialSampler.sample(left, p, rand);
+			left -= counts[k];
+			probabilityLeft -= probabilities[k];
+		}
+		counts[slotCount - 1] += left;
+		return new SkillPopulation(counts);
+	}
+
+	/**
+	 * Returns the number of skill levels, which is the number of slots of the
+	 * machine the population was made for.
+	 *
+	 * @return number of skill levels
+	 */
+	public int getSlotCount() {
+		return counts.length;
+	}
+
+	/**
+	 * Returns the number of beans in the population.
+	 *
+	 * @return number of beans
+	 */
+	public long size() {
+		return size;
+	}
+
+	/**
+	 * Returns the number of beans with the given skill level.
+	 *
+	 * @param skillLevel the skill level
+	 * @return number of beans with that skill level
+	 */
+	public long getCount(int skillLevel) {
+		return counts[skillLevel];
+	}
+}
@@ -0,0 +1,163 @@
+package edu.pitt.cs;
+
+import java.util.Random;
+
+/**
+ * SkillSampler: Draws skill levels with very nearly the same distribution as
+ * BeanImpl.drawSkillLevel(), but from a table built once per slot count rather
+ * than with a Gaussian per bean.
+ *
+ * <p>
+ * BeanImpl rounds a normal variate with mean (slotCount - 1) / 2 and variance
+ * slotCount / 4 to the nearest integer and clamps it to [0, slotCount - 1], so
+ * skill level k has probability Phi((k + 0.5 - mean) / stddev) - Phi((k - 0.5 -
+ * mean) / stddev), with the tails folded into the first and last level. Phi is
+ * evaluated with an approximation of erfc whose relative error is below
+ * 1.2e-7, so the table is approximate: the probability of every skill level is
+ * within about 1.2e-7 of the exact one. That is far below what a run of
+ * millions of beans can tell apart. Those probabilities go into an alias table (M. D. Vose, "A linear algorithm for
+ * generating random numbers with a given distribution", IEEE Transactions on
+ * Software Engineering 17, 1991), after which every skill level costs one
+ * rand.nextLong(), a multiplication and a comparison.
+ */
+
+public class SkillSampler {
+	private static final double TWO_TO_32 = 4294967296.0;
+
+	private int[] alias;
+	private long[] threshold;		// Keep column i if the low 32 random bits are below threshold[i]
+
+	/**
+	 * Constructor - builds the alias table of skill levels for a machine with
+	 * the provided number of slots.
+	 *
+	 * @param slotCount the number of slots in the machine
+	 */
+	SkillSampler(int slotCount) {
+		double[] probabilities = skillProbabilities(slotCount);
+		int n = probabilities.length;
+		alias = new int[n];
+		threshold = new long[n];
+
+		// Scale to an average of 1 per column and split into small and large columns
+		double[] scaled = new double[n];
+		int[] small = new int[n];
+		int[] large = new int[n];
+		int smallCount = 0;
+		int largeCount = 0;
+		for (int i = 0; i < n; i++) {
+			scaled[i] = probabilities[i] * n;
+			if (scaled[i] < 1.0) {
+				small[smallCount++] = i;
+			} else {
+				large[largeCount++] = i;
+			}
+		}
+		while (smallCount > 0 && largeCount > 0) {
+			int less = small[--smallCount];
+			int more = large[--largeCount];
+			threshold[less] = (long) (scaled[less] * TWO_TO_32);
+			alias[less] = more;
+			scaled[more] = (scaled[more] + scaled[less]) - 1.0;
+			if (scaled[more] < 1.0) {
+				small[smallCount++] = more;
+			} else {
+				large[largeCount++] = more;
+			}
+		}
+		// Whatever is left is 1 up to rounding error
+		while (largeCount > 0) {
+			int column = large[--largeCount];
+			threshold[column] = 1L << 32;
+			alias[column] = column;
+		}
+		while (smallCount > 0) {
+			int column = small[--smallCount];
+			threshold[column] = 1L << 32;
+			alias[column] = column;
+		}
+	}
+
+	/**
+	 * Returns the probability of each skill level given by
+	 * BeanImpl.drawSkillLevel().
+	 *
+	 * @param slotCount the number of slots in the machine
+	 * @return an array with the probability of skill level k at index k
+	 */
+	static double[] skillProbabilities(int slotCount) {
+		double skillAverage = (slotCount - 1) * 0.5;
+		double skillStDev = Math.sqrt(slotCount * 0.5 * (1 - 0.5));
+		double[] probabilities = new double[slotCount];
+		double below = 0.0;
+		for (int k = 0; k < slotCount - 1; k++) {
+			double upTo = normalCdf((k + 0.5 - skillAverage) / skillStDev);
+			probabilities[k] = Math.max(0.0, upTo - below);
+			below = upTo;
+		}
+		probabilities[slotCount - 1] = 1.0 - below;
+		return probabilities;
+	}
+
+	/**
+	 * Returns the number of skill levels the sampler draws from.
+	 *
+	 * @return the number of slots the sampler was built for
+	 */
+	public int getSlotCount() {
+		return alias.length;
+	}
+
+	/**
+	 * Draws one skill level.
+	 *
+	 * @param rand the random number generator
+	 * @return a skill level in [0, slotCount-1]
+	 */
+	public int sample(Random rand) {
+		long bits = rand.nextLong();
+		int column = (int) (((bits >>> 32) * alias.length) >>> 32);
+		return (bits & 0xffffffffL) < threshold[column] ? column : alias[column];
+	}
+
+	/**
+	 * Draws skill levels for beans [from, to) of a BeanPool's skill column. The
+	 * sampler must have at most Short.MAX_VALUE + 1 slots.
+	 *
+	 * @param skills the array to fill with skill levels
+	 * @param from   index of the first bean
+	 * @param to     one past the index of the last bean
+	 * @param rand   the random number generator
+	 */
+	public void sample(short[] skills, int from, int to, Random rand) {
+		for (int i = from; i < to; i++) {
+			skills[i] = (short) sample(rand);
+		}
+	}
+
+	/**
+	 * Returns the standard normal cumulative distribution function at x.
+	 *
+	 * @param x the point to evaluate at
+	 * @return the probability that a standard normal variate is at most x
+	 */
+	private static double normalCdf(double x) {
+		return 0.5 * erfc(-x / Math.sqrt(2.0));
+	}
+
+	/**
+	 * Complementary error function with a relative error below 1.2e-7 everywhere,
+	 * from W. H. Press et al., "Numerical Recipes", section 6.2.
+	 *
+	 * @param x the point to evaluate at
+	 * @return erfc(x)
+	 */
+	private static double erfc(double x) {
+		double z = Math.abs(x);
+		double t = 1.0 / (1.0 + 0.5 * z);
+		double ans = t * Math.exp(-z * z - 1.26551223 + t * (1.00002368 + t * (0.37409196
+				+ t * (0.09678418 + t * (-0.18628806 + t * (0.27886807 + t * (-1.13520398
+				+ t * (1.48851587 + t * (-0.82215223 + t * 0.17087277)))))))));
+		return x >= 0 ? ans : 2.0 - ans;
+	}
+}
@@ -0,0 +1,79 @@
+package edu.pitt.cs;
+
+import java.util.Arrays;
+
+/**
+ * SlotQueue: The beans in one slot, in the order they landed. Beans are only
+ * ever added at the tail and removed from the head, so the queue is an array
+ * with a head index. Removing any number of beans from the head just moves the
+ * head; the references left behind are dropped the next time the array is
+ * compacted, which add() does when more than half of it is unused.
+ */
+
+public class SlotQueue {
+	private static final Bean[] EMPTY = new Bean[0];
+
+	private Bean[] beans = EMPTY;
+	private int head;		// Index of the earliest landed bean
+	private int tail;		// One past the index of the latest landed bean
+
+	/**
+	 * Returns the number of beans in the slot.
+	 *
+	 * @return number of beans
+	 */
+	public int size() {
+		return tail - head;
+	}
+
+	/**
+	 * Returns the bean at the given position, 0 being the earliest landed.
+	 *
+	 * @param i position of the bean
+	 * @return the bean
+	 */
+	public Bean get(int i) {
+		return beans[head + i];
+	}
+
+	/**
+	 * Adds a bean that just landed.
+	 *
+	 * @param bean the bean to add
+	 */
+	public void add(Bean bean) {
+		if (tail == beans.length) {
+			int size = size();
+			if (head > 0 && size <= beans.length / 2) {
+				System.arraycopy(beans, head, beans, 0, size);
+				Arrays.fill(beans, size, tail, null);
+			} else {
+				beans = Arrays.copyOfRange(beans, head, head + Math.max(8, beans.length * 2));
+			}
+			head = 0;
+			tail = size;
+		}
+		beans[tail++] = bean;
+	}
+
+	/**
+	 * Removes the given number of earliest landed beans.
+	 *
+	 * @param count the number of beans to remove, at most size()
+	 */
+	public void removeFirst(int count) {
+		head += count;
+		if (head == tail) {
+			clear();
+		}
+	}
+
+	/**
+	 * Removes all beans.
+	 */
+	public void clear() {
+		beans = EMPTY;
+		head = 0;
+		tail = 0;
+	}
+}
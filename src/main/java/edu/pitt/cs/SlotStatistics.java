@@ -0,0 +1,168 @@
+package edu.pitt.cs;
+
+/**
+ * SlotStatistics: Running statistics of the slot numbers of the beans in the
+ * slots. Beans are added as they land and removed by upperHalf(), lowerHalf()
+ * and repeat(), and every statistic is computed in constant time from the
+ * first four power sums of the slot numbers, without looking at the slots.
+ *
+ * <p>
+ * Slot numbers are measured from the middle of the machine, (slotCount - 1) /
+ * 2, and doubled so they are integers. The sums then stay exact integers for
+ * as long as a double can hold them, and the beans of a symmetric bell curve
+ * largely cancel out in the odd sums, which keeps rounding error small when
+ * the central moments are computed from them.
+ */
+
+public class SlotStatistics {
+	private int twiceCenter;		// slotCount - 1
+	private long count;
+	private double sum1;			// Sum of d, where d = 2 * slot - twiceCenter
+	private double sum2;			// Sum of d^2
+	private double sum3;			// Sum of d^3
+	private double sum4;			// Sum of d^4
+
+	/**
+	 * Constructor - creates empty statistics for a machine with the provided
+	 * number of slots.
+	 *
+	 * @param slotCount the number of slots in the machine
+	 */
+	SlotStatistics(int slotCount) {
+		this.twiceCenter = slotCount - 1;
+	}
+
+	/**
+	 * Adds beans to a slot.
+	 *
+	 * @param slot  the slot number
+	 * @param beans the number of beans added; negative to remove beans
+	 */
+	void add(int slot, long beans) {
+		double d = 2.0 * slot - twiceCenter;
+		double d2 = d * d;
+		count += beans;
+		if (count == 0) {
+			clear();
+			return;
+		}
+		sum1 += beans * d;
+		sum2 += beans * d2;
+		sum3 += beans * d2 * d;
+		sum4 += beans * d2 * d2;
+	}
+
+	/**
+	 * Adds a bean to a slot.
+	 *
+	 * @param slot the slot number
+	 */
+	void add(int slot) {
+		add(slot, 1);
+	}
+
+	/**
+	 * Removes beans from a slot.
+	 *
+	 * @param slot  the slot number
+	 * @param beans the number of beans removed
+	 */
+	void remove(int slot, long beans) {
+		add(slot, -beans);
+	}
+
+	/**
+	 * Removes all beans.
+	 */
+	void clear() {
+		count = 0;
+		sum1 = 0;
+		sum2 = 0;
+		sum3 = 0;
+		sum4 = 0;
+	}
+
+	/**
+	 * Returns the number of beans in slots.
+	 *
+	 * @return number of beans
+	 */
+	public long getCount() {
+		return count;
+	}
+
+	/**
+	 * Returns the average slot number of the beans in slots, or 0 if there are
+	 * none, like BeanCounterLogic.getAverageSlotBeanCount().
+	 *
+	 * @return the mean slot number
+	 */
+	public double getMean() {
+		return count > 0 ? (twiceCenter + sum1 / count) * 0.5 : 0.0;
+	}
+
+	/**
+	 * Returns the population variance of the slot numbers.
+	 *
+	 * @return the variance, or 0 if there are no beans
+	 */
+	public double getVariance() {
+		return centralMoment2() * 0.25;
+	}
+
+	/**
+	 * Returns the population standard deviation of the slot numbers.
+	 *
+	 * @return the standard deviation, or 0 if there are no beans
+	 */
+	public double getStandardDeviation() {
+		return Math.sqrt(getVariance());
+	}
+
+	/**
+	 * Returns the skewness of the slot numbers, which is 0 for a symmetric
+	 * distribution.
+	 *
+	 * @return the skewness, or 0 if all beans are in the same slot
+	 */
+	public double getSkewness() {
+		double m2 = centralMoment2();
+		if (m2 <= 0) {
+			return 0.0;
+		}
+		double mean = sum1 / count;
+		double m3 = sum3 / count - 3 * mean * sum2 / count + 2 * mean * mean * mean;
+		return m3 / (m2 * Math.sqrt(m2));
+	}
+
+	/**
+	 * Returns the excess kurtosis of the slot numbers, which is 0 for a normal
+	 * distribution and -2 / (slotCount - 1) for the binomial distribution of a
+	 * luck mode run.
+	 *
+	 * @return the excess kurtosis, or 0 if all beans are in the same slot
+	 */
+	public double getKurtosis() {
+		double m2 = centralMoment2();
+		if (m2 <= 0) {
+			return 0.0;
+		}
+		double mean = sum1 / count;
+		double mean2 = mean * mean;
+		double m4 = sum4 / count - 4 * mean * sum3 / count + 6 * mean2 * sum2 / count - 3 * mean2 * mean2;
+		return m4 / (m2 * m2) - 3.0;
+	}
+
+	/**
+	 * Returns the second central moment of the doubled slot numbers.
+	 *
+	 * @return the second central moment, never negative
+	 */
+	private double centralMoment2() {
+		if (count <= 0) {
+			return 0.0;
+		}
+		double mean = sum1 / count;
+		return Math.max(0.0, sum2 / count - mean * mean);
+	}
+}
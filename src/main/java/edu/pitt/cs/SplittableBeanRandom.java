@@ -0,0 +1,98 @@
+package edu.pitt.cs;
+
+import java.util.SplittableRandom;
+
+/**
+ * SplittableBeanRandom: The SplitMix64 algorithm of java.util.SplittableRandom
+ * in a generator that can be used wherever a java.util.Random is expected. It
+ * has no locks or atomic updates, and split() hands out independent
+ * generators, which is what parallel bean creation needs.
+ *
+ * <p>
+ * The generator returns exactly the same numbers as a SplittableRandom with
+ * the same seed, and so do the generators split off from both. Its state is
+ * kept in two longs here rather than in a SplittableRandom, since
+ * SplittableRandom is not serializable and java.util.Random is.
+ */
+
+public class SplittableBeanRandom extends BeanRandom {
+	private static final long serialVersionUID = 2L;
+	private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+	private long seed;
+	private long gamma;		// Odd increment of seed, fixed for the life of a generator
+
+	/**
+	 * Constructor - creates a generator with a seed that differs from call to
+	 * call.
+	 */
+	public SplittableBeanRandom() {
+		this(new SplittableRandom().nextLong());
+	}
+
+	/**
+	 * Constructor - creates a generator seeded with the given seed.
+	 *
+	 * @param seed the initial seed
+	 */
+	public SplittableBeanRandom(long seed) {
+		super(seed);
+	}
+
+	/**
+	 * Constructor - creates a generator split off from another one.
+	 *
+	 * @param seed  the initial seed
+	 * @param gamma the increment of the seed
+	 */
+	private SplittableBeanRandom(long seed, long gamma) {
+		super(seed);
+		this.gamma = gamma;
+	}
+
+	@Override
+	protected void reseed(long seed) {
+		this.seed = seed;
+		this.gamma = GOLDEN_GAMMA;
+	}
+
+	/**
+	 * Advances the seed.
+	 *
+	 * @return the new seed
+	 */
+	private long nextSeed() {
+		return seed += gamma;
+	}
+
+	@Override
+	public long nextLong() {
+		return splitMix64(nextSeed());
+	}
+
+	/**
+	 * Returns a new generator that is statistically independent of this one.
+	 *
+	 * @return the new generator
+	 */
+	public SplittableBeanRandom split() {
+		return new SplittableBeanRandom(nextLong(), mixGamma(nextSeed()));
+	}
+
+	/**
+	 * Turns a seed into the increment of a split off generator, as
+	 * SplittableRandom does: an odd number with enough bit transitions to step
+	 * through the seeds well.
+	 *
+	 * @param state the seed to mix
+	 * @return the increment
+	 */
+	private static long mixGamma(long state) {
+		long z = state;
+		z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+		z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+		z = (z ^ (z >>> 33)) | 1L;
+		int n = Long.bitCount(z ^ (z >>> 1));
+		return (n < 24) ? z ^ 0xaaaaaaaaaaaaaaaaL : z;
+	}
+}
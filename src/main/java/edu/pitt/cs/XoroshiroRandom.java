@@ -0,0 +1,65 @@
+package edu.pitt.cs;
+
+import java.util.SplittableRandom;
+
+/**
+ * XoroshiroRandom: The xoroshiro128++ generator by David Blackman and
+ * Sebastiano Vigna. Two longs of state, a handful of shifts and rotations per
+ * call, and much better statistical quality than the 48-bit LCG in
+ * java.util.Random.
+ */
+
+public class XoroshiroRandom extends BeanRandom {
+	private static final long serialVersionUID = 1L;
+	private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+	private long s0;
+	private long s1;
+
+	/**
+	 * Constructor - creates a generator with a seed that differs from call to
+	 * call.
+	 */
+	public XoroshiroRandom() {
+		this(new SplittableRandom().nextLong());
+	}
+
+	/**
+	 * Constructor - creates a generator seeded with the given seed.
+	 *
+	 * @param seed the initial seed
+	 */
+	public XoroshiroRandom(long seed) {
+		super(seed);
+	}
+
+	/**
+	 * Constructor - creates a generator with the given state, as in the
+	 * reference implementation. The state must not be all zeros.
+	 *
+	 * @param s0 the first word of the state
+	 * @param s1 the second word of the state
+	 */
+	XoroshiroRandom(long s0, long s1) {
+		super(0);
+		this.s0 = s0;
+		this.s1 = s1;
+	}
+
+	@Override
+	protected void reseed(long seed) {
+		s0 = splitMix64(seed + GOLDEN_GAMMA);
+		s1 = splitMix64(seed + 2 * GOLDEN_GAMMA);
+	}
+
+	@Override
+	public long nextLong() {
+		long a = s0;
+		long b = s1;
+		long result = Long.rotateLeft(a + b, 17) + a;
+		b ^= a;
+		s0 = Long.rotateLeft(a, 49) ^ b ^ (b << 21);
+		s1 = Long.rotateLeft(b, 28);
+		return result;
+	}
+}
@@ -4,11 +4,19 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.PrintStream;
 import java.io.UnsupportedEncodingException;
 import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.stream.Stream;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.FixMethodOrder;
@@ -489,4 +497,1414 @@ public class PlainJUnitTest {
 
 	}
 
+	/**
+	 * Test advanceSteps(long) and runToEnd() in luck mode.
+	 * 
+	 * <pre>
+	 * Preconditions: logics for each slot count in logicSlotCounts are created.
+	 * Execution steps: For the logic with 10 slot counts,
+	 *                  Call createBeans to create 200 lucky beans
+	 *                  Call logic.reset(beans).
+	 *                  Call logic.advanceSteps(50).
+	 *                  Call logic.runToEnd().
+	 * Invariants: advanceSteps(50) returns 50 and leaves 149 beans remaining.
+	 *             runToEnd() returns the 159 steps needed for the last bean to land.
+	 *             The machine is finished and all 200 beans are in slots.
+	 * </pre>
+	 */
+	@Test
+	public void testAdvanceSteps() {
+		BeanCounterLogic logic = logics[1];
+		Bean[] beans = createBeans(logic.getSlotCount(), 200, true);
+		logic.reset(beans);
+
+		assertEquals("Check steps taken", 50, logic.advanceSteps(50));
+		assertEquals("Check remaining bean count", 149, logic.getRemainingBeanCount());
+		assertEquals("Check steps taken", 159, logic.runToEnd());
+		assertTrue("Check machine is finished", logic.isFinished());
+		assertEquals("Check in-slot bean count", 200, getInSlotsBeanCount(logic, logic.getSlotCount()));
+	}
+
+	/**
+	 * Test BeanCounterLogicImpl.advanceTo(long) in luck mode.
+	 * 
+	 * <pre>
+	 * Preconditions: Two identical populations of 200 lucky beans are created for 10 slots,
+	 *                where bean i has its own Random seeded with i.
+	 * Execution steps: Reset two BeanCounterLogicImpls with one population each.
+	 *                  Call advanceStep() 100 times on the first and advanceTo(100) on the second.
+	 *                  Call runToEnd() on both.
+	 * Invariants: After step 100, both machines have the same string representation and
+	 *             remaining bean count.
+	 *             After the runs, both machines have the same slot bean counts.
+	 * </pre>
+	 */
+	@Test
+	public void testAdvanceTo() {
+		Bean[] steppedBeans = new Bean[200];
+		Bean[] jumpedBeans = new Bean[200];
+		for (int i = 0; i < 200; i++) {
+			steppedBeans[i] = new BeanImpl(10, true, new Random(i));
+			jumpedBeans[i] = new BeanImpl(10, true, new Random(i));
+		}
+		BeanCounterLogicImpl stepped = new BeanCounterLogicImpl(10);
+		BeanCounterLogicImpl jumped = new BeanCounterLogicImpl(10);
+		stepped.reset(steppedBeans);
+		jumped.reset(jumpedBeans);
+
+		for (int i = 0; i < 100; i++) {
+			stepped.advanceStep();
+		}
+		jumped.advanceTo(100);
+		assertEquals("Check step count", 100, jumped.getStepCount());
+		assertEquals("Check machine state", stepped.toString(), jumped.toString());
+		assertEquals("Check remaining bean count", stepped.getRemainingBeanCount(),
+				jumped.getRemainingBeanCount());
+
+		stepped.runToEnd();
+		jumped.runToEnd();
+		assertSlotCountsEqual(stepped, jumped);
+	}
+
+	/**
+	 * Test the ring of in-flight rows and the bitmask of occupied rows of BeanCounterLogicImpl
+	 * on a machine wider than one word of the bitmask.
+	 *
+	 * <pre>
+	 * Preconditions: 300 skilled LazyBeans are created for 130 slots, bean j with skill level
+	 *                {@literal (37 * j) % 140}.
+	 * Execution steps: Reset a BeanCounterLogicImpl with the beans and call advanceStep() until it
+	 *                  returns false. Reset another with the same beans and call advanceSteps(37)
+	 *                  until it returns 0.
+	 * Invariants: After every step of the first machine and every call on the second, with
+	 *             s = getStepCount(), row yPos holds bean j = s - yPos at x-coordinate
+	 *             min(skill level of bean j, yPos) if j is in [0, 300), and no bean otherwise.
+	 *             isFinished() is true once s reaches 299 + 130, when the last bean has landed.
+	 *             At the end, slot k of both machines holds the beans with
+	 *             {@literal min(skill level, 129) == k}.
+	 * </pre>
+	 */
+	@Test
+	public void testImplRingOfRows() {
+		int[] skillLevels = new int[300];
+		int[] expectedSlots = new int[130];
+		Bean[] beans = new Bean[skillLevels.length];
+		for (int j = 0; j < beans.length; j++) {
+			skillLevels[j] = (37 * j) % 140;
+			expectedSlots[Math.min(skillLevels[j], 129)]++;
+			beans[j] = new LazyBean(false, rand, skillLevels[j]);
+		}
+
+		BeanCounterLogicImpl stepped = new BeanCounterLogicImpl(130);
+		stepped.reset(beans);
+		do {
+			assertRowsMatchSkillLevels(stepped, skillLevels);
+		} while (stepped.advanceStep());
+		assertTrue("Check machine is finished", stepped.isFinished());
+
+		BeanCounterLogicImpl jumped = new BeanCounterLogicImpl(130);
+		jumped.reset(beans);
+		do {
+			assertRowsMatchSkillLevels(jumped, skillLevels);
+		} while (jumped.advanceSteps(37) > 0);
+		assertTrue("Check machine is finished", jumped.isFinished());
+
+		for (int k = 0; k < 130; k++) {
+			assertEquals("Check slot " + k, expectedSlots[k], stepped.getSlotBeanCount(k));
+			assertEquals("Check slot " + k, expectedSlots[k], jumped.getSlotBeanCount(k));
+		}
+	}
+
+	private void assertRowsMatchSkillLevels(BeanCounterLogicImpl logic, int[] skillLevels) {
+		assertEquals("Check isFinished at step " + logic.getStepCount(),
+				logic.getStepCount() >= skillLevels.length - 1 + logic.getSlotCount(), logic.isFinished());
+		for (int yPos = 0; yPos < logic.getSlotCount(); yPos++) {
+			long j = logic.getStepCount() - yPos;
+			int expected = j >= 0 && j < skillLevels.length
+					? Math.min(skillLevels[(int) j], yPos) : BeanCounterLogic.NO_BEAN_IN_YPOS;
+			assertEquals("Check row " + yPos + " at step " + logic.getStepCount(), expected,
+					logic.getInFlightBeanXPos(yPos));
+		}
+	}
+
+	/**
+	 * Test BeanCounterLogicHistogram against BeanCounterLogicImpl in luck mode.
+	 * 
+	 * <pre>
+	 * Preconditions: Two populations of 200 lucky beans are created for 10 slots, each sharing
+	 *                its own Random seeded with 42.
+	 * Execution steps: Reset a BeanCounterLogicImpl and a BeanCounterLogicHistogram with one
+	 *                  population each and run both to the end.
+	 *                  Call upperHalf() on both, then repeat() and run both to the end again.
+	 * Invariants: After each run and after upperHalf(), the slot bean counts of both machines
+	 *             are identical.
+	 * </pre>
+	 */
+	@Test
+	public void testHistogramMatchesImpl() {
+		Random implRand = new Random(42);
+		Random histogramRand = new Random(42);
+		Bean[] implBeans = new Bean[200];
+		Bean[] histogramBeans = new Bean[200];
+		for (int i = 0; i < 200; i++) {
+			implBeans[i] = new BeanImpl(10, true, implRand);
+			histogramBeans[i] = new BeanImpl(10, true, histogramRand);
+		}
+		BeanCounterLogic impl = new BeanCounterLogicImpl(10);
+		BeanCounterLogic histogram = new BeanCounterLogicHistogram(10);
+
+		impl.reset(implBeans);
+		histogram.reset(histogramBeans);
+		while (impl.advanceStep()) {
+			assertTrue("Check histogram is still running", histogram.advanceStep());
+		}
+		assertSlotCountsEqual(impl, histogram);
+
+		impl.upperHalf();
+		histogram.upperHalf();
+		assertSlotCountsEqual(impl, histogram);
+
+		impl.repeat();
+		histogram.repeat();
+		assertEquals("Check remaining bean count", impl.getRemainingBeanCount(),
+				histogram.getRemainingBeanCount());
+		while (impl.advanceStep()) {
+			histogram.advanceStep();
+		}
+		assertSlotCountsEqual(impl, histogram);
+	}
+
+	/**
+	 * Test BeanCounterLogicHistogram against BeanCounterLogicImpl in skill mode.
+	 * 
+	 * <pre>
+	 * Preconditions: 200 skilled beans are created for 10 slots.
+	 * Execution steps: Reset a BeanCounterLogicImpl and a BeanCounterLogicHistogram with the beans
+	 *                  and run both to the end.
+	 *                  Call lowerHalf() on both, then repeat() and run both to the end again.
+	 *                  Call repeat() halfway through the run and run both to the end again.
+	 *                  Call repeat() on both, advance both 5 steps, then call runToEnd() on the
+	 *                  BeanCounterLogicImpl and fastForward() on the BeanCounterLogicHistogram.
+	 * Invariants: After each run, the slot bean counts of both machines are identical.
+	 * </pre>
+	 */
+	@Test
+	public void testHistogramSkillModeMatchesImpl() {
+		Bean[] beans = createBeans(10, 200, false);
+		BeanCounterLogic impl = new BeanCounterLogicImpl(10);
+		BeanCounterLogicHistogram histogram = new BeanCounterLogicHistogram(10);
+
+		impl.reset(beans);
+		while (impl.advanceStep()) {
+			;
+		}
+		int[] expectedSlotCounts = new int[10];
+		for (int i = 0; i < 10; i++) {
+			expectedSlotCounts[i] = impl.getSlotBeanCount(i);
+		}
+		histogram.reset(beans);
+		while (histogram.advanceStep()) {
+			;
+		}
+		for (int i = 0; i < 10; i++) {
+			assertEquals("Check slot count " + i, expectedSlotCounts[i], histogram.getSlotBeanCount(i));
+		}
+
+		impl.lowerHalf();
+		histogram.lowerHalf();
+		impl.repeat();
+		histogram.repeat();
+		for (int step = 0; step < 50; step++) {
+			impl.advanceStep();
+			histogram.advanceStep();
+		}
+		impl.repeat();
+		histogram.repeat();
+		while (impl.advanceStep()) {
+			histogram.advanceStep();
+		}
+		assertSlotCountsEqual(impl, histogram);
+
+		impl.repeat();
+		histogram.repeat();
+		impl.advanceSteps(5);
+		histogram.advanceSteps(5);
+		impl.runToEnd();
+		histogram.fastForward();
+		assertTrue("Check machine is finished", histogram.isFinished());
+		assertSlotCountsEqual(impl, histogram);
+	}
+
+	/**
+	 * Test BeanCounterLogicPool against BeanCounterLogicImpl in skill mode.
+	 * 
+	 * <pre>
+	 * Preconditions: 200 skilled beans are created for 10 slots.
+	 * Execution steps: Reset a BeanCounterLogicImpl and a BeanCounterLogicPool with the beans
+	 *                  and run both to the end.
+	 *                  Call upperHalf() on both, then repeat() and run both to the end again.
+	 * Invariants: After each run, the slot bean counts of both machines are identical.
+	 * </pre>
+	 */
+	@Test
+	public void testPoolSkillModeMatchesImpl() {
+		Bean[] beans = createBeans(10, 200, false);
+		BeanCounterLogic impl = new BeanCounterLogicImpl(10);
+		BeanCounterLogic pool = new BeanCounterLogicPool(10);
+
+		pool.reset(beans);
+		while (pool.advanceStep()) {
+			;
+		}
+		impl.reset(beans);
+		while (impl.advanceStep()) {
+			;
+		}
+		assertSlotCountsEqual(impl, pool);
+
+		impl.upperHalf();
+		pool.upperHalf();
+		impl.repeat();
+		pool.repeat();
+		while (impl.advanceStep()) {
+			pool.advanceStep();
+		}
+		assertSlotCountsEqual(impl, pool);
+	}
+
+	/**
+	 * Test BeanCounterLogicPool against BeanCounterLogicImpl in luck mode.
+	 * 
+	 * <pre>
+	 * Preconditions: Two sets of 5000 lucky BeanImpls are created for 10 slots, each set
+	 *                sharing a Random seeded with 7. A third set draws from rand.
+	 * Execution steps: Reset a BeanCounterLogicPool with each of the seeded sets and a
+	 *                  BeanCounterLogicImpl with the third set, and run all three to the end.
+	 *                  Call repeat() on both pools and run them to the end again.
+	 * Invariants: After each run, the slot bean counts of both pools are identical, since the
+	 *             beans keep bouncing with their own generators.
+	 *             For every slot k, the counts of the pool and the Impl differ by less than
+	 *             4 standard deviations of the difference of two binomial counts with
+	 *             {@literal p = C(9, k) / 512}.
+	 * </pre>
+	 */
+	@Test
+	public void testPoolLuckModeMatchesImpl() {
+		BeanCounterLogic[] pools = { new BeanCounterLogicPool(10), new BeanCounterLogicPool(10) };
+		for (BeanCounterLogic pool : pools) {
+			Random seeded = new Random(7);
+			Bean[] beans = new Bean[5000];
+			for (int i = 0; i < beans.length; i++) {
+				beans[i] = new BeanImpl(10, true, seeded);
+			}
+			pool.reset(beans);
+			pool.runToEnd();
+		}
+		assertSlotCountsEqual(pools[0], pools[1]);
+
+		BeanCounterLogic impl = new BeanCounterLogicImpl(10);
+		impl.reset(createBeans(10, 5000, true));
+		impl.runToEnd();
+		double p = 1.0 / 512;
+		for (int k = 0; k < 10; k++) {
+			double deviation = Math.sqrt(2 * 5000 * p * (1 - p));
+			int difference = impl.getSlotBeanCount(k) - pools[0].getSlotBeanCount(k);
+			assertTrue("Check slot " + k, Math.abs(difference) < 4 * deviation);
+			p = p * (9 - k) / (k + 1);
+		}
+
+		for (BeanCounterLogic pool : pools) {
+			pool.repeat();
+			pool.runToEnd();
+		}
+		assertSlotCountsEqual(pools[0], pools[1]);
+	}
+
+	/**
+	 * Test that BeanCounterLogicPool rejects a pool created for another number of slots.
+	 *
+	 * <pre>
+	 * Preconditions: A counter-based BeanPool of 100 skilled beans is created for 20 slots.
+	 * Execution steps: Reset a BeanCounterLogicPool for 10 slots with the pool.
+	 *                  Reset a BeanCounterLogicPool for 20 slots with the pool, run it to the end,
+	 *                  call repeat() and run it to the end again.
+	 * Invariants: The 10-slot machine throws an IllegalArgumentException.
+	 *             The 20-slot machine has all 100 beans in slots after each run.
+	 * </pre>
+	 */
+	@Test
+	public void testPoolRejectsOtherSlotCount() {
+		BeanPool beans = BeanPool.counterBased(100, 20, false, 42);
+		try {
+			new BeanCounterLogicPool(10).reset(beans);
+			fail("Expected IllegalArgumentException for a pool of 20 slots");
+		} catch (IllegalArgumentException e) {
+			assertTrue("Check message", e.getMessage().contains("20 slots"));
+		}
+
+		BeanCounterLogicPool pool = new BeanCounterLogicPool(20);
+		pool.reset(beans);
+		pool.runToEnd();
+		assertEquals("Check in-slot bean count", 100, getInSlotsBeanCount(pool, 20));
+		pool.repeat();
+		pool.runToEnd();
+		assertEquals("Check in-slot bean count", 100, getInSlotsBeanCount(pool, 20));
+	}
+
+	/**
+	 * Test that a shared BeanPool hands out the bits of its generator one per bounce.
+	 *
+	 * <pre>
+	 * Preconditions: A shared BeanPool of 4 lucky beans for 1000 slots draws from a Random
+	 *                seeded with 11. An oracle Random is seeded with 11 as well.
+	 * Execution steps: Move the beans in turn by 1, 63, 1, 64, 65, 130 and 3 rows at a time,
+	 *                  with advanceStep() for single rows and advanceSteps() otherwise.
+	 *                  For each move, take as many bits from the oracle's nextLong() values,
+	 *                  lowest bit first, and count the one bits.
+	 * Invariants: After every move, getXPos() of the bean has grown by the count of one bits.
+	 * </pre>
+	 */
+	@Test
+	public void testBeanPoolBitCache() {
+		BeanPool pool = BeanPool.shared(4, 1000, true, new Random(11));
+		Random oracle = new Random(11);
+		long bits = 0;
+		int bitCount = 0;
+		int[] xpos = new int[4];
+		int[] ypos = new int[4];
+		int i = 0;
+		for (int pass = 0; pass < 3; pass++) {
+			for (int rows : new int[] {1, 63, 1, 64, 65, 130, 3}) {
+				if (rows == 1) {
+					pool.advanceStep(i, ypos[i]);
+				} else {
+					pool.advanceSteps(i, ypos[i], rows);
+				}
+				for (int row = 0; row < rows; row++) {
+					if (bitCount == 0) {
+						bits = oracle.nextLong();
+						bitCount = 64;
+					}
+					xpos[i] += (int) (bits & 1);
+					bits >>>= 1;
+					bitCount--;
+				}
+				ypos[i] += rows;
+				assertEquals("Check bean " + i + " at row " + ypos[i], xpos[i], pool.getXPos(i));
+				i = (i + 1) % 4;
+			}
+		}
+	}
+
+	/**
+	 * Test that BeanCounterLogicPool.runToEnd() lands beans like stepping to the end.
+	 *
+	 * <pre>
+	 * Preconditions: Two counter-based BeanPools of 5000 lucky beans for 70 slots with seed 42,
+	 *                two shared BeanPools of 500 skilled beans for 10 slots drawing from Randoms
+	 *                seeded with 5, and two shared BeanPools of 20000 lucky beans for 10 slots
+	 *                drawing from Randoms seeded with 5 and 6.
+	 * Execution steps: For each pair, reset a BeanCounterLogicPool with the first pool and call
+	 *                  runToEnd(), and reset another with the second pool and call advanceStep()
+	 *                  until it returns false.
+	 * Invariants: The slot bean counts of the counter-based and skilled pairs are identical.
+	 *             For the lucky shared pair, the counts of every slot k differ by less than
+	 *             4 standard deviations of the difference of two binomial counts with
+	 *             {@literal p = C(9, k) / 512}.
+	 * </pre>
+	 */
+	@Test
+	public void testPoolRunToEndMatchesStepping() {
+		BeanPool[][] pairs = {
+			{BeanPool.counterBased(5000, 70, true, 42), BeanPool.counterBased(5000, 70, true, 42)},
+			{BeanPool.shared(500, 10, false, new Random(5)), BeanPool.shared(500, 10, false, new Random(5))},
+			{BeanPool.shared(20000, 10, true, new Random(5)), BeanPool.shared(20000, 10, true, new Random(6))},
+		};
+		int[] slotCounts = {70, 10, 10};
+		for (int pair = 0; pair < pairs.length; pair++) {
+			BeanCounterLogicPool run = new BeanCounterLogicPool(slotCounts[pair]);
+			run.reset(pairs[pair][0]);
+			run.runToEnd();
+			BeanCounterLogicPool stepped = new BeanCounterLogicPool(slotCounts[pair]);
+			stepped.reset(pairs[pair][1]);
+			while (stepped.advanceStep()) {
+				;
+			}
+			assertEquals("Check in-slot bean count", pairs[pair][0].size(), getInSlotsBeanCount(run, slotCounts[pair]));
+			if (pair < 2) {
+				assertSlotCountsEqual(stepped, run);
+				continue;
+			}
+			double p = 1.0 / 512;
+			for (int k = 0; k < 10; k++) {
+				double deviation = Math.sqrt(2 * 20000 * p * (1 - p));
+				int difference = stepped.getSlotBeanCount(k) - run.getSlotBeanCount(k);
+				assertTrue("Check slot " + k, Math.abs(difference) < 4 * deviation);
+				p = p * (9 - k) / (k + 1);
+			}
+		}
+	}
+
+	/**
+	 * Test BeanCounterLogicHistogram.fastForward() in luck mode.
+	 * 
+	 * <pre>
+	 * Preconditions: 20000 lucky beans are created for 10 slots.
+	 * Execution steps: Reset a BeanCounterLogicHistogram with the beans.
+	 *                  Call advanceStep() 5 times so that some beans are in flight.
+	 *                  Call fastForward().
+	 * Invariants: The machine is finished and all 20000 beans are in slots.
+	 *             {@literal Math.abs(4.5 - getAverageSlotBeanCount()) < 0.1}.
+	 * </pre>
+	 */
+	@Test
+	public void testHistogramFastForward() {
+		BeanCounterLogicHistogram histogram = new BeanCounterLogicHistogram(10, new Random(42));
+		histogram.reset(createBeans(10, 20000, true));
+		for (int i = 0; i < 5; i++) {
+			histogram.advanceStep();
+		}
+		histogram.fastForward();
+
+		assertTrue("Check machine is finished", histogram.isFinished());
+		assertEquals("Check in-slot bean count", 20000, getInSlotsBeanCount(histogram, 10));
+		assertTrue("Check ideal - observed", Math.abs(4.5 - histogram.getAverageSlotBeanCount()) < 0.1);
+	}
+
+	/**
+	 * Test that counter-based beans land in the same slots however they are advanced.
+	 *
+	 * <pre>
+	 * Preconditions: 5000 lucky CounterBeans with seed 42 are created for 70 slots.
+	 *                A counter-based BeanPool of 5000 lucky beans with seed 42 is created for 70 slots.
+	 * Execution steps: Reset a BeanCounterLogicImpl with the beans and step it to the end.
+	 *                  Reset a BeanCounterLogicPool with the pool, step it 100 times and call runToEnd().
+	 * Invariants: The slot bean counts of both machines are identical.
+	 * </pre>
+	 */
+	@Test
+	public void testCounterBasedBeansAreOrderIndependent() {
+		Bean[] beans = new Bean[5000];
+		for (int i = 0; i < beans.length; i++) {
+			beans[i] = new CounterBean(70, true, 42, i);
+		}
+		BeanCounterLogic impl = new BeanCounterLogicImpl(70);
+		impl.reset(beans);
+		while (impl.advanceStep()) {
+			;
+		}
+
+		BeanCounterLogicPool pool = new BeanCounterLogicPool(70);
+		pool.reset(BeanPool.counterBased(5000, 70, true, 42));
+		for (int i = 0; i < 100; i++) {
+			pool.advanceStep();
+		}
+		pool.runToEnd();
+		assertSlotCountsEqual(impl, pool);
+	}
+
+	/**
+	 * Test that LazyBean lands in the same slots as BeanImpl and resolves its bounces only once.
+	 *
+	 * <pre>
+	 * Preconditions: 5000 lucky LazyBeans and 5000 lucky BeanImpls are created for 40 slots.
+	 * Execution steps: Reset a BeanCounterLogicImpl with each set and run both to the end.
+	 *                  Move a lucky LazyBean down 20 rows, then 19 more, calling getXPos() twice
+	 *                  after each move, then reset() it and move it down 10 rows.
+	 *                  Do the same with a LazyBean with skill level 25.
+	 * Invariants: For every slot k, the counts of the two machines differ by less than
+	 *             4 standard deviations of the difference of two binomial counts with
+	 *             {@literal p = C(39, k) / 2^39}.
+	 *             Repeated calls to getXPos() return the same X-coordinate, which stays in
+	 *             [0, getYPos()] and grows by at most the number of rows moved.
+	 *             After reset(), getXPos() and getYPos() are 0.
+	 *             The skilled bean is at min(25, getYPos()) after every move.
+	 * </pre>
+	 */
+	@Test
+	public void testLazyBeanMatchesBeanImpl() {
+		Bean[] lazyBeans = new Bean[5000];
+		Bean[] beans = new Bean[5000];
+		for (int i = 0; i < beans.length; i++) {
+			lazyBeans[i] = new LazyBean(40, true, rand);
+			beans[i] = new BeanImpl(40, true, rand);
+		}
+		BeanCounterLogic lazy = new BeanCounterLogicImpl(40);
+		lazy.reset(lazyBeans);
+		lazy.runToEnd();
+		BeanCounterLogic impl = new BeanCounterLogicImpl(40);
+		impl.reset(beans);
+		impl.runToEnd();
+		double p = Math.pow(2, -39);
+		for (int k = 0; k < 40; k++) {
+			double deviation = Math.sqrt(2 * 5000 * p * (1 - p));
+			int difference = impl.getSlotBeanCount(k) - lazy.getSlotBeanCount(k);
+			assertTrue("Check slot " + k, Math.abs(difference) <= 4 * deviation);
+			p = p * (39 - k) / (k + 1);
+		}
+
+		for (boolean luck : new boolean[] {true, false}) {
+			LazyBean bean = new LazyBean(luck, rand, 25);
+			bean.advanceSteps(20);
+			int first = bean.getXPos();
+			assertEquals("Check repeated getXPos", first, bean.getXPos());
+			assertTrue("Check x-coordinate " + first, first >= 0 && first <= 20);
+			bean.advanceSteps(19);
+			int second = bean.getXPos();
+			assertEquals("Check repeated getXPos", second, bean.getXPos());
+			assertTrue("Check x-coordinate " + second, second >= first && second - first <= 19);
+			if (!luck) {
+				assertEquals("Check skilled x-coordinate", 20, first);
+				assertEquals("Check skilled x-coordinate", 25, second);
+			}
+
+			bean.reset();
+			assertEquals("Check x-coordinate after reset", 0, bean.getXPos());
+			assertEquals("Check y-coordinate after reset", 0, bean.getYPos());
+			bean.advanceSteps(10);
+			int third = bean.getXPos();
+			assertEquals("Check repeated getXPos", third, bean.getXPos());
+			assertTrue("Check x-coordinate " + third, third >= 0 && third <= 10);
+			if (!luck) {
+				assertEquals("Check skilled x-coordinate", 10, third);
+			}
+		}
+	}
+
+	/**
+	 * Test that SkillSampler draws skill levels with the same distribution as BeanImpl.
+	 *
+	 * <pre>
+	 * Preconditions: A SkillSampler is created for 10 slots.
+	 * Execution steps: Draw 100000 skill levels with the sampler and 100000 with
+	 *                  BeanImpl.drawSkillLevel(), counting how often each level occurs.
+	 * Invariants: For every skill level, the two frequencies differ by less than 0.01.
+	 * </pre>
+	 */
+	@Test
+	public void testSkillSamplerMatchesBeanImpl() {
+		SkillSampler sampler = new SkillSampler(10);
+		Random rand = new Random(42);
+		int[] sampled = new int[10];
+		int[] drawn = new int[10];
+		for (int i = 0; i < 100000; i++) {
+			sampled[sampler.sample(rand)]++;
+			drawn[BeanImpl.drawSkillLevel(10, rand)]++;
+		}
+		for (int i = 0; i < 10; i++) {
+			assertTrue("Check skill level " + i, Math.abs(sampled[i] - drawn[i]) / 100000.0 < 0.01);
+		}
+	}
+
+	/**
+	 * Test the tails of the SkillSampler table against the exact distribution and against BeanImpl.
+	 *
+	 * <pre>
+	 * Preconditions: A SkillSampler is created for 10 slots.
+	 * Execution steps: Compute the probabilities of skill levels 0, 1, 8 and 9 with
+	 *                  SkillSampler.skillProbabilities().
+	 *                  Draw 1000000 skill levels with the sampler and 1000000 with
+	 *                  BeanImpl.drawSkillLevel(), counting how often levels 0 and 9 occur.
+	 * Invariants: The probabilities are within 2e-7 of the exact ones, 0.0057060181930008 for
+	 *             levels 0 and 9 and 0.0231837673687978 for levels 1 and 8.
+	 *             The counts of levels 0 and 9 differ by less than 4 standard deviations of the
+	 *             difference of two binomial counts with p = 0.0057060181930008.
+	 * </pre>
+	 */
+	@Test
+	public void testSkillSamplerTails() {
+		double[] probabilities = SkillSampler.skillProbabilities(10);
+		double[] exact = {0.0057060181930008, 0.0231837673687978};
+		for (int k = 0; k < exact.length; k++) {
+			assertEquals("Check skill level " + k, exact[k], probabilities[k], 2e-7);
+			assertEquals("Check skill level " + (9 - k), exact[k], probabilities[9 - k], 2e-7);
+		}
+
+		SkillSampler sampler = new SkillSampler(10);
+		int[] sampled = new int[10];
+		int[] drawn = new int[10];
+		for (int i = 0; i < 1000000; i++) {
+			sampled[sampler.sample(rand)]++;
+			drawn[BeanImpl.drawSkillLevel(10, rand)]++;
+		}
+		double deviation = Math.sqrt(2 * 1000000 * exact[0] * (1 - exact[0]));
+		for (int k : new int[] {0, 9}) {
+			assertTrue("Check skill level " + k, Math.abs(sampled[k] - drawn[k]) < 4 * deviation);
+		}
+	}
+
+	/**
+	 * Test that BeanFactory populations only depend on their seed.
+	 *
+	 * <pre>
+	 * Preconditions: A default BeanFactory, one with a shared XOROSHIRO generator per chunk, and
+	 *                one with a THREAD_LOCAL generator per bean.
+	 * Execution steps: With each factory, create two pools and two arrays of lazy beans of
+	 *                  200000 skilled beans for 10 slots, all with seed 42.
+	 * Invariants: Bean i has the same skill level in both pools and in both arrays, for every i.
+	 * </pre>
+	 */
+	@Test
+	public void testBeanFactoryIsReproducible() {
+		BeanFactory[] factories = { new BeanFactory(), new BeanFactory(RandomType.XOROSHIRO, true),
+			new BeanFactory(RandomType.THREAD_LOCAL, false) };
+		for (BeanFactory factory : factories) {
+			BeanPool pool1 = factory.createPool(10, false, 200000, 42);
+			BeanPool pool2 = factory.createPool(10, false, 200000, 42);
+			Bean[] beans1 = factory.createLazyBeans(10, false, 200000, 42);
+			Bean[] beans2 = factory.createLazyBeans(10, false, 200000, 42);
+			for (int i = 0; i < 200000; i++) {
+				assertEquals("Check pool skill level " + i, pool1.getSkillLevel(i), pool2.getSkillLevel(i));
+				assertEquals("Check bean skill level " + i, ((EngineBean) beans1[i]).getSkillLevel(),
+						((EngineBean) beans2[i]).getSkillLevel());
+			}
+		}
+	}
+
+	/**
+	 * Test XoroshiroRandom against the reference implementation of xoroshiro128++.
+	 *
+	 * <pre>
+	 * Preconditions: A XoroshiroRandom is created with the state {1, 2}.
+	 * Execution steps: Call nextLong() 10 times.
+	 * Invariants: The numbers are those the reference C implementation gives for that state.
+	 * </pre>
+	 */
+	@Test
+	public void testXoroshiroReferenceVector() {
+		long[] expected = { 0x0000000000060001L, 0x000260c000660007L, 0x180acc04718606d3L,
+			0x9e226d35036fc4c7L, 0x849bc9ac6b960be4L, 0x31c5870fc130361bL, 0x17790d7cd5b2e061L,
+			0x94fc9bb11da24a91L, 0xd32b1882a2515cdfL, 0xc5b860879a3f7e53L };
+		XoroshiroRandom xoroshiro = new XoroshiroRandom(1, 2);
+		for (int i = 0; i < expected.length; i++) {
+			assertEquals("Check output " + i, expected[i], xoroshiro.nextLong());
+		}
+	}
+
+	/**
+	 * Test that SplittableBeanRandom is SplittableRandom and survives serialization.
+	 *
+	 * <pre>
+	 * Preconditions: A SplittableBeanRandom and a SplittableRandom are created with seed 42.
+	 * Execution steps: Draw 100 longs from both, split both, and draw 100 longs from both halves.
+	 *                  Serialize the split off SplittableBeanRandom and read it back.
+	 * Invariants: Both generators, and both split off generators, give the same numbers.
+	 *             The copy read back gives the same numbers as the generator it was written from.
+	 * </pre>
+	 */
+	@Test
+	public void testSplittableBeanRandom() throws IOException, ClassNotFoundException {
+		SplittableBeanRandom bean = new SplittableBeanRandom(42);
+		SplittableRandom reference = new SplittableRandom(42);
+		for (int i = 0; i < 100; i++) {
+			assertEquals("Check output " + i, reference.nextLong(), bean.nextLong());
+		}
+		SplittableBeanRandom beanSplit = bean.split();
+		SplittableRandom referenceSplit = reference.split();
+		for (int i = 0; i < 100; i++) {
+			assertEquals("Check output " + i, reference.nextLong(), bean.nextLong());
+			assertEquals("Check split output " + i, referenceSplit.nextLong(), beanSplit.nextLong());
+		}
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream objects = new ObjectOutputStream(bytes)) {
+			objects.writeObject(beanSplit);
+		}
+		Random copy;
+		try (ObjectInputStream objects = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+			copy = (Random) objects.readObject();
+		}
+		for (int i = 0; i < 100; i++) {
+			assertEquals("Check copy output " + i, beanSplit.nextLong(), copy.nextLong());
+		}
+	}
+
+	/**
+	 * Test the methods BeanRandom derives from nextLong().
+	 *
+	 * <pre>
+	 * Preconditions: Two XoroshiroRandoms are created with seed 42, and one of every RandomType
+	 *                with seed 7.
+	 * Execution steps: Draw from the first XoroshiroRandom with each method, and the matching
+	 *                  longs from the second. Call setSeed(42) on the first.
+	 *                  Draw 100000 numbers with nextInt(10), nextDouble() and nextGaussian().
+	 *                  Create a second generator of every RandomType with seed 7.
+	 * Invariants: nextInt(), nextBoolean() and nextDouble() are the top bits of nextLong().
+	 *             After setSeed(42), the first generator starts over.
+	 *             nextInt(10) is in [0, 10) and has a mean within 0.05 of 4.5; nextDouble() is in
+	 *             [0, 1) and has a mean within 0.01 of 0.5; nextGaussian() has a mean within 0.02
+	 *             of 0 and a variance within 0.03 of 1.
+	 *             Every RandomType, THREAD_LOCAL included, gives the same numbers for the same seed.
+	 * </pre>
+	 */
+	@Test
+	public void testBeanRandom() {
+		BeanRandom random = new XoroshiroRandom(42);
+		BeanRandom reference = new XoroshiroRandom(42);
+		assertEquals("Check nextInt", (int) (reference.nextLong() >>> 32), random.nextInt());
+		assertEquals("Check nextBoolean", reference.nextLong() < 0, random.nextBoolean());
+		assertEquals("Check nextDouble", (reference.nextLong() >>> 11) * 0x1.0p-53, random.nextDouble(), 0.0);
+		random.setSeed(42);
+		assertEquals("Check setSeed", new XoroshiroRandom(42).nextLong(), random.nextLong());
+
+		double intSum = 0;
+		double doubleSum = 0;
+		double gaussianSum = 0;
+		double gaussianSquareSum = 0;
+		for (int i = 0; i < 100000; i++) {
+			int k = random.nextInt(10);
+			assertTrue("Check nextInt(10) " + k, k >= 0 && k < 10);
+			intSum += k;
+			double d = random.nextDouble();
+			assertTrue("Check nextDouble " + d, d >= 0 && d < 1);
+			doubleSum += d;
+			double g = random.nextGaussian();
+			gaussianSum += g;
+			gaussianSquareSum += g * g;
+		}
+		assertEquals("Check nextInt(10) mean", 4.5, intSum / 100000, 0.05);
+		assertEquals("Check nextDouble mean", 0.5, doubleSum / 100000, 0.01);
+		double gaussianMean = gaussianSum / 100000;
+		assertEquals("Check nextGaussian mean", 0, gaussianMean, 0.02);
+		assertEquals("Check nextGaussian variance", 1, gaussianSquareSum / 100000 - gaussianMean * gaussianMean, 0.03);
+
+		for (RandomType type : RandomType.values()) {
+			Random first = type.create(7);
+			Random second = type.create(7);
+			for (int i = 0; i < 10; i++) {
+				assertEquals("Check " + type + " output " + i, first.nextLong(), second.nextLong());
+			}
+		}
+	}
+
+	/**
+	 * Test BeanCounterLogicHistogram with beans taken from a source as they are dropped.
+	 *
+	 * <pre>
+	 * Preconditions: A source creates lucky beans for 10 slots on demand and counts them.
+	 * Execution steps: Reset a BeanCounterLogicHistogram with the source and a count of 100000.
+	 *                  Call advanceStep() 5 times.
+	 *                  Call runToEnd(), then repeat() and runToEnd() again.
+	 * Invariants: After the 5 steps, 6 beans have been created.
+	 *             After each run, all 100000 beans are in slots.
+	 *             In total, 100000 beans have been created.
+	 * </pre>
+	 */
+	@Test
+	public void testHistogramStreamingReset() {
+		int[] created = new int[1];
+		Iterator<Bean> source = Stream.generate(() -> {
+			created[0]++;
+			return Bean.createInstance(10, true, rand);
+		}).iterator();
+		BeanCounterLogic histogram = new BeanCounterLogicHistogram(10, new Random(42));
+		histogram.reset(source, 100000);
+		for (int i = 0; i < 5; i++) {
+			histogram.advanceStep();
+		}
+		assertEquals("Check created bean count", 6, created[0]);
+
+		histogram.runToEnd();
+		assertEquals("Check in-slot bean count", 100000, getInSlotsBeanCount(histogram, 10));
+		histogram.repeat();
+		histogram.runToEnd();
+		assertEquals("Check in-slot bean count after repeat", 100000, getInSlotsBeanCount(histogram, 10));
+		assertEquals("Check created bean count", 100000, created[0]);
+	}
+
+	/**
+	 * Test that a streaming reset of BeanCounterLogicHistogram matches BeanCounterLogicImpl
+	 * in skill mode.
+	 *
+	 * <pre>
+	 * Preconditions: 200 skilled beans are created for 10 slots.
+	 * Execution steps: Reset a BeanCounterLogicImpl with the beans and a BeanCounterLogicHistogram
+	 *                  with an iterator over the beans. Advance both 50 steps, call repeat()
+	 *                  on both and run both to the end.
+	 * Invariants: The slot bean counts of both machines are identical.
+	 * </pre>
+	 */
+	@Test
+	public void testHistogramStreamingResetSkillMode() {
+		Bean[] beans = createBeans(10, 200, false);
+		BeanCounterLogic impl = new BeanCounterLogicImpl(10);
+		BeanCounterLogic histogram = new BeanCounterLogicHistogram(10);
+		impl.reset(beans);
+		histogram.reset(Arrays.asList(beans).iterator(), beans.length);
+		impl.advanceSteps(50);
+		histogram.advanceSteps(50);
+		impl.repeat();
+		histogram.repeat();
+		impl.runToEnd();
+		histogram.runToEnd();
+		assertSlotCountsEqual(impl, histogram);
+	}
+
+	/**
+	 * Test BeanCounterLogicHistogram with a run-length encoded SkillPopulation.
+	 *
+	 * <pre>
+	 * Preconditions: 200 skilled beans are created for 10 slots.
+	 * Execution steps: Reset a BeanCounterLogicImpl with the beans and a BeanCounterLogicHistogram
+	 *                  with SkillPopulation.fromBeans() of the beans, and run both to the end.
+	 *                  Reset the histogram with SkillPopulation.random() of 1000000 beans for 10 slots
+	 *                  and run it to the end.
+	 * Invariants: After the first run, the slot bean counts of both machines are identical.
+	 *             After the second run, all 1000000 beans are in slots and
+	 *             {@literal Math.abs(4.5 - getAverageSlotBeanCount()) < 0.01}.
+	 * </pre>
+	 */
+	@Test
+	public void testHistogramSkillPopulation() {
+		Bean[] beans = createBeans(10, 200, false);
+		BeanCounterLogic impl = new BeanCounterLogicImpl(10);
+		BeanCounterLogicHistogram histogram = new BeanCounterLogicHistogram(10);
+		impl.reset(beans);
+		histogram.reset(SkillPopulation.fromBeans(beans, 10));
+		impl.runToEnd();
+		histogram.runToEnd();
+		assertSlotCountsEqual(impl, histogram);
+
+		histogram.reset(SkillPopulation.random(10, 1000000, rand));
+		histogram.runToEnd();
+		assertEquals("Check in-slot bean count", 1000000, getInSlotsBeanCount(histogram, 10));
+		assertTrue("Check ideal - observed", Math.abs(4.5 - histogram.getAverageSlotBeanCount()) < 0.01);
+	}
+
+	/**
+	 * Test that the running slot statistics match statistics computed from the slot counts.
+	 *
+	 * <pre>
+	 * Preconditions: 2000 lucky beans are created for 10 slots.
+	 * Execution steps: Reset a BeanCounterLogicImpl and a BeanCounterLogicHistogram with the beans
+	 *                  and run both to the end. Call upperHalf() on both, then lowerHalf().
+	 * Invariants: After each of these calls, the mean, variance, skewness and kurtosis returned by
+	 *             getSlotStatistics() match the ones computed from getSlotBeanCount().
+	 * </pre>
+	 */
+	@Test
+	public void testSlotStatistics() {
+		Bean[] beans = createBeans(10, 2000, true);
+		BeanCounterLogic[] machines = { new BeanCounterLogicImpl(10), new BeanCounterLogicHistogram(10) };
+		for (BeanCounterLogic machine : machines) {
+			machine.reset(beans);
+			machine.runToEnd();
+			assertSlotStatistics(machine);
+			machine.upperHalf();
+			assertSlotStatistics(machine);
+			machine.lowerHalf();
+			assertSlotStatistics(machine);
+		}
+	}
+
+	private void assertSlotStatistics(BeanCounterLogic logic) {
+		double[] moments = new double[5];
+		for (int i = 0; i < logic.getSlotCount(); i++) {
+			moments[0] += logic.getSlotBeanCount(i);
+			moments[1] += (double) logic.getSlotBeanCount(i) * i;
+		}
+		double mean = moments[1] / moments[0];
+		for (int i = 0; i < logic.getSlotCount(); i++) {
+			for (int k = 2; k <= 4; k++) {
+				moments[k] += logic.getSlotBeanCount(i) * Math.pow(i - mean, k) / moments[0];
+			}
+		}
+		SlotStatistics statistics = logic.getSlotStatistics();
+		assertEquals("Check mean", mean, statistics.getMean(), 1e-9);
+		assertEquals("Check variance", moments[2], statistics.getVariance(), 1e-9);
+		assertEquals("Check skewness", moments[3] / Math.pow(moments[2], 1.5), statistics.getSkewness(), 1e-9);
+		assertEquals("Check kurtosis", moments[4] / (moments[2] * moments[2]) - 3, statistics.getKurtosis(), 1e-9);
+	}
+
+	/**
+	 * Test keepRange() and getSlotPercentile() of BeanCounterLogicImpl.
+	 *
+	 * <pre>
+	 * Preconditions: 1001 lucky beans are created for 10 slots.
+	 * Execution steps: Reset a BeanCounterLogicImpl with the beans and run it to the end.
+	 *                  Call keepRange(10, 75).
+	 * Invariants: Before keepRange(), getMedianSlot() is the slot of the 501st lowest bean.
+	 *             After keepRange(), the 100 lowest and the 250 highest beans are gone
+	 *             from the slot bean counts.
+	 * </pre>
+	 */
+	@Test
+	public void testKeepRange() {
+		BeanCounterLogicImpl logic = new BeanCounterLogicImpl(10);
+		logic.reset(createBeans(10, 1001, true));
+		logic.runToEnd();
+		int[] expected = new int[10];
+		int medianSlot = -1;
+		int below = 0;
+		for (int i = 0; i < 10; i++) {
+			expected[i] = logic.getSlotBeanCount(i);
+			if (medianSlot < 0 && below + expected[i] >= 501) {
+				medianSlot = i;
+			}
+			below += expected[i];
+		}
+		assertEquals("Check median slot", medianSlot, logic.getMedianSlot());
+
+		for (int i = 0, toRemove = 100; toRemove > 0; i++) {
+			int removed = Math.min(toRemove, expected[i]);
+			expected[i] -= removed;
+			toRemove -= removed;
+		}
+		for (int i = 9, toRemove = 250; toRemove > 0; i--) {
+			int removed = Math.min(toRemove, expected[i]);
+			expected[i] -= removed;
+			toRemove -= removed;
+		}
+		logic.keepRange(10, 75);
+		for (int i = 0; i < 10; i++) {
+			assertEquals("Check slot count " + i, expected[i], logic.getSlotBeanCount(i));
+		}
+	}
+
+	/**
+	 * Test BeanCounterLogicHistogram with more beans than fit in an int.
+	 *
+	 * <pre>
+	 * Preconditions: A source creates lucky beans for 10 slots on demand.
+	 * Execution steps: Reset a BeanCounterLogicHistogram with the source and a count of 10^10.
+	 *                  Call fastForward().
+	 * Invariants: After the reset, getRemainingBeanCountLong() is 10^10 - 1 and
+	 *             getRemainingBeanCount() is Integer.MAX_VALUE.
+	 *             After fastForward(), getSlotBeanCountLong() adds up to 10^10 and
+	 *             {@literal Math.abs(4.5 - getAverageSlotBeanCount()) < 0.001}.
+	 * </pre>
+	 */
+	@Test
+	public void testHistogramLongBeanCount() {
+		long beanCount = 10000000000L;
+		BeanCounterLogicHistogram histogram = new BeanCounterLogicHistogram(10, new Random(42));
+		histogram.reset(Stream.generate(() -> Bean.createInstance(10, true, rand)).iterator(), beanCount);
+		assertEquals("Check remaining bean count", beanCount - 1, histogram.getRemainingBeanCountLong());
+		assertEquals("Check saturated remaining bean count", Integer.MAX_VALUE, histogram.getRemainingBeanCount());
+
+		histogram.fastForward();
+		long inSlots = 0;
+		for (int i = 0; i < 10; i++) {
+			inSlots += histogram.getSlotBeanCountLong(i);
+		}
+		assertEquals("Check in-slot bean count", beanCount, inSlots);
+		assertTrue("Check ideal - observed", Math.abs(4.5 - histogram.getAverageSlotBeanCount()) < 0.001);
+	}
+
+	/**
+	 * Test that BeanCounterLogicAdaptive switches engines by heap budget without
+	 * changing what callers see.
+	 *
+	 * <pre>
+	 * Preconditions: A BeanCounterLogicAdaptive for 10 slots is created with a heap budget for 100 beans.
+	 * Execution steps: Reset it with 50 skilled beans, then 200, then 50 again, each time
+	 *                  alongside a BeanCounterLogicImpl reset with the same beans.
+	 *                  Call advanceStep() on both until it returns false.
+	 * Invariants: isCompact() is false for 50 beans and true for 200 beans.
+	 *             After every step, getRemainingBeanCount(), getInFlightBeanXPos() for
+	 *             every row and getSlotBeanCount() for every slot match the BeanCounterLogicImpl.
+	 * </pre>
+	 */
+	@Test
+	public void testAdaptiveMatchesImpl() {
+		BeanCounterLogicAdaptive adaptive = new BeanCounterLogicAdaptive(10,
+				100 * BeanCounterLogicAdaptive.OBJECT_ENGINE_BYTES_PER_BEAN);
+		for (int beanCount : new int[] {50, 200, 50}) {
+			Bean[] beans = new Bean[beanCount];
+			for (int i = 0; i < beanCount; i++) {
+				beans[i] = Bean.createInstance(10, false, rand);
+			}
+			BeanCounterLogicImpl impl = new BeanCounterLogicImpl(10);
+			impl.reset(beans);
+			adaptive.reset(beans);
+			assertEquals("Check engine for " + beanCount + " beans", beanCount > 100, adaptive.isCompact());
+
+			boolean moved;
+			do {
+				assertEquals("Check remaining bean count", impl.getRemainingBeanCount(),
+						adaptive.getRemainingBeanCount());
+				for (int yPos = 0; yPos < 10; yPos++) {
+					assertEquals("Check in-flight bean " + yPos, impl.getInFlightBeanXPos(yPos),
+							adaptive.getInFlightBeanXPos(yPos));
+				}
+				assertSlotCountsEqual(impl, adaptive);
+				moved = impl.advanceStep();
+				assertEquals("Check advanceStep", moved, adaptive.advanceStep());
+			} while (moved);
+		}
+	}
+
+	/**
+	 * Test BeanCounterLogicAdaptive against BeanCounterLogicImpl in luck mode, on both sides
+	 * of its heap budget.
+	 *
+	 * <pre>
+	 * Preconditions: A BeanCounterLogicAdaptive for 10 slots has a heap budget of 100 beans
+	 *                for the object engine.
+	 * Execution steps: For 50 and then 20000 beans, create two sets of lucky BeanImpls for
+	 *                  10 slots where bean i of each set draws from a Random seeded with i.
+	 *                  Reset the BeanCounterLogicAdaptive with one set and a
+	 *                  BeanCounterLogicImpl with the other, and run both to the end.
+	 *                  Call upperHalf() and repeat() on both and run them to the end again.
+	 * Invariants: isCompact() is false for 50 beans and true for 20000 beans.
+	 *             After the first run, the slot bean counts of both machines are identical and
+	 *             add up to the number of beans, since every bean bounces with its own generator.
+	 *             After the second run, the slot bean counts of both machines add up to the
+	 *             number of beans kept by upperHalf(). For 50 beans, they are identical. For
+	 *             20000 beans, the histogram engine re-drops other beans than the Impl, so the
+	 *             counts of every slot k differ by less than 4 standard deviations of the
+	 *             difference of two binomial counts with {@literal p = C(9, k) / 512}.
+	 * </pre>
+	 */
+	@Test
+	public void testAdaptiveLuckModeMatchesImpl() {
+		BeanCounterLogicAdaptive adaptive = new BeanCounterLogicAdaptive(10,
+				100 * BeanCounterLogicAdaptive.OBJECT_ENGINE_BYTES_PER_BEAN);
+		for (int beanCount : new int[] {50, 20000}) {
+			Bean[] beans = new Bean[beanCount];
+			Bean[] copies = new Bean[beanCount];
+			for (int i = 0; i < beanCount; i++) {
+				beans[i] = new BeanImpl(10, true, new Random(i));
+				copies[i] = new BeanImpl(10, true, new Random(i));
+			}
+			BeanCounterLogicImpl impl = new BeanCounterLogicImpl(10);
+			impl.reset(copies);
+			impl.runToEnd();
+			adaptive.reset(beans);
+			assertEquals("Check engine for " + beanCount + " beans", beanCount > 100, adaptive.isCompact());
+			adaptive.runToEnd();
+
+			assertEquals("Check in-slot bean count", beanCount, getInSlotsBeanCount(adaptive, 10));
+			assertSlotCountsEqual(impl, adaptive);
+
+			impl.upperHalf();
+			adaptive.upperHalf();
+			int halfCount = getInSlotsBeanCount(impl, 10);
+			assertEquals("Check in-slot bean count", halfCount, getInSlotsBeanCount(adaptive, 10));
+			impl.repeat();
+			impl.runToEnd();
+			adaptive.repeat();
+			adaptive.runToEnd();
+			assertEquals("Check in-slot bean count", halfCount, getInSlotsBeanCount(impl, 10));
+			assertEquals("Check in-slot bean count", halfCount, getInSlotsBeanCount(adaptive, 10));
+			if (!adaptive.isCompact()) {
+				assertSlotCountsEqual(impl, adaptive);
+				continue;
+			}
+			double p = 1.0 / 512;
+			for (int k = 0; k < 10; k++) {
+				double deviation = Math.sqrt(2 * halfCount * p * (1 - p));
+				int difference = impl.getSlotBeanCount(k) - adaptive.getSlotBeanCount(k);
+				assertTrue("Check slot " + k, Math.abs(difference) < 4 * deviation);
+				p = p * (9 - k) / (k + 1);
+			}
+		}
+	}
+
+	/**
+	 * Test that BeanCounterLogicAdaptive draws and fast-forwards through its current engine.
+	 *
+	 * <pre>
+	 * Preconditions: A BeanCounterLogicAdaptive for 10 slots has a heap budget of 100 beans
+	 *                for the object engine.
+	 * Execution steps: Reset it and a BeanCounterLogicImpl with two identical sets of 50 skilled
+	 *                  beans, call advanceStep() 5 times on both and compare toString(), then
+	 *                  call fastForward() on the BeanCounterLogicAdaptive.
+	 *                  Do the same with 20000 lucky beans.
+	 * Invariants: Both machines draw the same string.
+	 *             After each fastForward(), the machine is finished with all beans in slots.
+	 *             With 20000 beans, toString() is the slot string.
+	 * </pre>
+	 */
+	@Test
+	public void testAdaptiveToStringAndFastForward() {
+		BeanCounterLogicAdaptive adaptive = new BeanCounterLogicAdaptive(10,
+				100 * BeanCounterLogicAdaptive.OBJECT_ENGINE_BYTES_PER_BEAN);
+		for (int beanCount : new int[] {50, 20000}) {
+			Bean[] beans = new Bean[beanCount];
+			Bean[] copies = new Bean[beanCount];
+			for (int i = 0; i < beanCount; i++) {
+				beans[i] = new BeanImpl(10, beanCount > 100, new Random(i));
+				copies[i] = new BeanImpl(10, beanCount > 100, new Random(i));
+			}
+			adaptive.reset(beans);
+			BeanCounterLogicImpl impl = new BeanCounterLogicImpl(10);
+			impl.reset(copies);
+			for (int i = 0; i < 5; i++) {
+				adaptive.advanceStep();
+				impl.advanceStep();
+			}
+			if (adaptive.isCompact()) {
+				assertEquals("Check toString", adaptive.getSlotString(), adaptive.toString());
+			} else {
+				assertEquals("Check toString", impl.toString(), adaptive.toString());
+			}
+			adaptive.fastForward();
+			assertTrue("Check machine is finished", adaptive.isFinished());
+			assertEquals("Check in-slot bean count", beanCount, getInSlotsBeanCount(adaptive, 10));
+		}
+	}
+
+	/**
+	 * Test a BeanCounterLogicImpl with a hopper that drops several beans per step.
+	 *
+	 * <pre>
+	 * Preconditions: Two BeanCounterLogicImpl objects for 10 slots with a hopper width of 4
+	 *                are reset with the same 101 skilled beans.
+	 * Execution steps: Call advanceStep() on the first until it returns false, and call
+	 *                  advanceTo() on the second with the step count of the first after every step.
+	 * Invariants: After the reset, getInFlightBeanCount(0) is 4 and getRemainingBeanCount() is 97.
+	 *             advanceStep() returns true 35 times, ceil(101 / 4) + 10 - 1.
+	 *             After every step, no row holds more than 4 beans, every bean at row yPos has an
+	 *             x-coordinate in [0, yPos], and rows and slots match between the two machines.
+	 *             At the end, the slot bean counts add up to 101.
+	 * </pre>
+	 */
+	@Test
+	public void testWideHopper() {
+		Bean[] beans = new Bean[101];
+		Bean[] copies = new Bean[beans.length];
+		for (int i = 0; i < beans.length; i++) {
+			BeanImpl bean = new BeanImpl(10, false, rand);
+			beans[i] = bean;
+			copies[i] = new LazyBean(false, rand, bean.getSkillLevel());
+		}
+		BeanCounterLogicImpl stepped = new BeanCounterLogicImpl(10, 4);
+		BeanCounterLogicImpl jumped = new BeanCounterLogicImpl(10, 4);
+		stepped.reset(beans);
+		jumped.reset(copies);
+		assertEquals("Check top row", 4, stepped.getInFlightBeanCount(0));
+		assertEquals("Check remaining bean count", 97, stepped.getRemainingBeanCount());
+
+		int steps = 0;
+		while (stepped.advanceStep()) {
+			steps++;
+			jumped.advanceTo(stepped.getStepCount());
+			for (int yPos = 0; yPos < 10; yPos++) {
+				int count = stepped.getInFlightBeanCount(yPos);
+				assertTrue("Check row " + yPos + " size", count <= 4);
+				assertEquals("Check row " + yPos + " size", count, jumped.getInFlightBeanCount(yPos));
+				for (int i = 0; i < count; i++) {
+					int xPos = stepped.getInFlightBeanXPos(yPos, i);
+					assertTrue("Check bean " + i + " in row " + yPos, xPos >= 0 && xPos <= yPos);
+					assertEquals("Check bean " + i + " in row " + yPos, xPos, jumped.getInFlightBeanXPos(yPos, i));
+				}
+			}
+			assertSlotCountsEqual(stepped, jumped);
+		}
+		assertEquals("Check step count", 35, steps);
+		int inSlots = 0;
+		for (int i = 0; i < 10; i++) {
+			inSlots += stepped.getSlotBeanCount(i);
+		}
+		assertEquals("Check in-slot bean count", 101, inSlots);
+	}
+
+	/**
+	 * Test that BeanCounterLogicSparse behaves like BeanCounterLogicImpl, and that
+	 * it runs a board with a million rows.
+	 *
+	 * <pre>
+	 * Preconditions: A BeanCounterLogicImpl and a BeanCounterLogicSparse for 20 slots are
+	 *                reset with copies of the same 50 skilled beans.
+	 * Execution steps: Call advanceStep() on both until it returns false. Call repeat() on both
+	 *                  partway through and upperHalf() at the end.
+	 *                  Reset a BeanCounterLogicSparse for 10^6 slots with 200 lucky beans and call runToEnd().
+	 * Invariants: After every step, getRemainingBeanCount(), getInFlightBeanXPos() for every row and
+	 *             getSlotBeanCount() for every slot match the BeanCounterLogicImpl.
+	 *             On the tall board, the slot statistics count 200 beans, no more than 200 slots
+	 *             are occupied, and the mean is within 4 standard errors of the middle.
+	 * </pre>
+	 */
+	@Test
+	public void testSparseMatchesImpl() {
+		Bean[] beans = new Bean[50];
+		Bean[] copies = new Bean[beans.length];
+		for (int i = 0; i < beans.length; i++) {
+			BeanImpl bean = new BeanImpl(20, false, rand);
+			beans[i] = bean;
+			copies[i] = new LazyBean(false, rand, bean.getSkillLevel());
+		}
+		BeanCounterLogicImpl impl = new BeanCounterLogicImpl(20);
+		BeanCounterLogicSparse sparse = new BeanCounterLogicSparse(20);
+		impl.reset(beans);
+		sparse.reset(copies);
+		boolean moved = true;
+		for (int steps = 1; moved; steps++) {
+			assertEquals("Check remaining bean count", impl.getRemainingBeanCount(), sparse.getRemainingBeanCount());
+			for (int yPos = 0; yPos < 20; yPos++) {
+				assertEquals("Check in-flight bean " + yPos, impl.getInFlightBeanXPos(yPos),
+						sparse.getInFlightBeanXPos(yPos));
+			}
+			assertSlotCountsEqual(impl, sparse);
+			if (steps == 40) {
+				impl.repeat();
+				sparse.repeat();
+			} else {
+				moved = impl.advanceStep();
+				assertEquals("Check advanceStep", moved, sparse.advanceStep());
+			}
+		}
+		impl.upperHalf();
+		sparse.upperHalf();
+		assertSlotCountsEqual(impl, sparse);
+
+		BeanCounterLogicSparse tall = new BeanCounterLogicSparse(1000000);
+		tall.reset(new BeanFactory().createLazyBeans(1000000, true, 200, 42));
+		tall.runToEnd();
+		assertEquals("Check in-slot bean count", 200, tall.getSlotStatistics().getCount());
+		assertTrue("Check occupied slots", tall.getOccupiedSlotCount() <= 200);
+		double standardError = Math.sqrt(999999 * 0.25 / 200);
+		assertTrue("Check ideal - observed", Math.abs(499999.5 - tall.getAverageSlotBeanCount()) < 4 * standardError);
+	}
+
+	/**
+	 * Test every engine on boards with biased pegs.
+	 *
+	 * <pre>
+	 * Preconditions: A 10-slot PegBias sends beans right at every peg in even rows and left in odd rows.
+	 *                A 10-slot PegBias.uniform() board sends beans right with a chance of 0.7.
+	 * Execution steps: For each board, run 2000 lucky LazyBeans to the end on a
+	 *                  BeanCounterLogicImpl with hopper widths 1 and 4, a BeanCounterLogicSparse, a
+	 *                  BeanCounterLogicHistogram, a BeanCounterLogicPool and a
+	 *                  BeanCounterLogicAdaptive with a heap budget of 0, all created with the board.
+	 *                  Also run a counter-based and a shared BeanPool of 2000 lucky beans on a
+	 *                  BeanCounterLogicPool, and step a BeanCounterLogicHistogram 5 times before
+	 *                  calling fastForward().
+	 *                  Create a BeanCounterLogicImpl with 11 slots and the 10-slot board.
+	 * Invariants: On the first board, getSlotProbabilities() gives slot 5 a probability of 1, and
+	 *             all 2000 beans land in slot 5 on every machine.
+	 *             On the tilted board, getSlotProbabilities() has a mean of 6.3, and on every
+	 *             machine {@literal Math.abs(6.3 - getAverageSlotBeanCount())} is within 4
+	 *             standard errors.
+	 *             The 11-slot machine throws an IllegalArgumentException.
+	 * </pre>
+	 */
+	@Test
+	public void testBiasedPegs() {
+		double[][] probabilities = new double[9][];
+		for (int y = 0; y < 9; y++) {
+			probabilities[y] = new double[y + 1];
+			Arrays.fill(probabilities[y], y % 2 == 0 ? 1.0 : 0.0);
+		}
+		PegBias zigzag = new PegBias(probabilities);
+		assertEquals("Check slot probability", 1.0, zigzag.getSlotProbabilities()[5], 0.0);
+		for (BeanCounterLogic logic : runOnBoard(zigzag)) {
+			assertEquals("Check slot 5 of " + logic.getClass().getSimpleName(), 2000, logic.getSlotBeanCount(5));
+		}
+
+		PegBias tilted = PegBias.uniform(10, 0.7);
+		double[] slotProbabilities = tilted.getSlotProbabilities();
+		double expectedMean = 0;
+		for (int i = 0; i < 10; i++) {
+			expectedMean += i * slotProbabilities[i];
+		}
+		assertEquals("Check expected mean", 6.3, expectedMean, 1e-6);
+		double standardError = Math.sqrt(9 * 0.7 * 0.3 / 2000);
+		for (BeanCounterLogic logic : runOnBoard(tilted)) {
+			assertTrue("Check ideal - observed of " + logic.getClass().getSimpleName(),
+					Math.abs(6.3 - logic.getAverageSlotBeanCount()) < 4 * standardError);
+		}
+
+		try {
+			new BeanCounterLogicImpl(11, 1, zigzag);
+			fail("Expected IllegalArgumentException for a board of the wrong size");
+		} catch (IllegalArgumentException e) {
+			assertTrue("Check message", e.getMessage().contains("11 slots"));
+		}
+	}
+
+	/**
+	 * Runs 2000 lucky beans to the end on every engine created with a 10-slot board.
+	 *
+	 * @param board the pegs of the board
+	 * @return the machines after the run
+	 */
+	private BeanCounterLogic[] runOnBoard(PegBias board) {
+		BeanCounterLogic[] machines = { new BeanCounterLogicImpl(10, 1, board), new BeanCounterLogicImpl(10, 4, board),
+			new BeanCounterLogicSparse(10, board), new BeanCounterLogicHistogram(10, new Random(42), board),
+			new BeanCounterLogicPool(10, board), new BeanCounterLogicAdaptive(10, 0, board) };
+		for (BeanCounterLogic logic : machines) {
+			logic.reset(new BeanFactory().createLazyBeans(10, true, 2000, 42));
+			logic.runToEnd();
+		}
+		BeanCounterLogicPool counterBased = new BeanCounterLogicPool(10, board);
+		counterBased.reset(BeanPool.counterBased(2000, 10, true, 42));
+		counterBased.runToEnd();
+		BeanCounterLogicPool shared = new BeanCounterLogicPool(10, board);
+		shared.reset(BeanPool.shared(2000, 10, true, new Random(42)));
+		shared.runToEnd();
+		BeanCounterLogicHistogram fastForwarded = new BeanCounterLogicHistogram(10, new Random(42), board);
+		fastForwarded.reset(new BeanFactory().createLazyBeans(10, true, 2000, 42));
+		fastForwarded.advanceSteps(5);
+		fastForwarded.fastForward();
+
+		BeanCounterLogic[] all = Arrays.copyOf(machines, machines.length + 3);
+		all[machines.length] = counterBased;
+		all[machines.length + 1] = shared;
+		all[machines.length + 2] = fastForwarded;
+		return all;
+	}
+
+	/**
+	 * Test that the counts engines reject beans that do not report their mode.
+	 *
+	 * <pre>
+	 * Preconditions: A bean implements only Bean, like the beans in the jars.
+	 * Execution steps: Reset a BeanCounterLogicHistogram and a BeanCounterLogicPool with it, and
+	 *                  count it with SkillPopulation.fromBeans().
+	 * Invariants: Each throws an IllegalArgumentException naming the supported bean types.
+	 *             A BeanCounterLogicImpl runs the bean to the end.
+	 * </pre>
+	 */
+	@Test
+	public void testCountsEnginesRejectUnknownBeans() {
+		Bean[] beans = { new Bean() {
+			private int xpos;
+			private int ypos;
+
+			public int getXPos() {
+				return xpos;
+			}
+
+			public int getYPos() {
+				return ypos;
+			}
+
+			public void reset() {
+				xpos = 0;
+				ypos = 0;
+			}
+
+			public void advanceStep() {
+				ypos++;
+			}
+		} };
+		BeanCounterLogic[] machines = { new BeanCounterLogicHistogram(10), new BeanCounterLogicPool(10) };
+		for (BeanCounterLogic machine : machines) {
+			try {
+				machine.reset(beans);
+				fail("Expected IllegalArgumentException from " + machine.getClass().getSimpleName());
+			} catch (IllegalArgumentException e) {
+				assertTrue("Check message", e.getMessage().contains("BeanImpl, LazyBean and CounterBean"));
+			}
+		}
+		try {
+			SkillPopulation.fromBeans(beans, 10);
+			fail("Expected IllegalArgumentException from SkillPopulation");
+		} catch (IllegalArgumentException e) {
+			assertTrue("Check message", e.getMessage().contains("BeanImpl, LazyBean and CounterBean"));
+		}
+		BeanCounterLogic impl = new BeanCounterLogicImpl(10);
+		impl.reset(beans);
+		impl.runToEnd();
+		assertEquals("Check slot 0", 1, impl.getSlotBeanCount(0));
+	}
+
+	private void assertSlotCountsEqual(BeanCounterLogic expected, BeanCounterLogic observed) {
+		for (int i = 0; i < expected.getSlotCount(); i++) {
+			assertEquals("Check slot count " + i, expected.getSlotBeanCount(i), observed.getSlotBeanCount(i));
+		}
+	}
+
 }